@@ -6,6 +6,8 @@ import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 
+import core.ConfigurationValidator;
+import core.QueryStats;
 import core.SamplingAlgorithm;
 import core.algorithms.ConstrainedAllEnabledDisabledOnewise;
 import core.algorithms.ConstrainedOneDisabledOnewise;
@@ -49,6 +51,8 @@ public class BugCheckerAdditionalSamplings {
 	public void checkSampling(SamplingAlgorithm sampling, String dimacsFile1, String dimacsFile2) throws Exception {
 		bugs = 0;
 		configurations = 0;
+		// The algorithms check their configurations with the shared validators, sum what this run asked of them..
+		QueryStats solverBefore = ConfigurationValidator.getTotalStats();
 				
 		FileInputStream fis = new FileInputStream(new File("bugs/busybox/busybox-bugs"));
 		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
@@ -131,6 +135,7 @@ public class BugCheckerAdditionalSamplings {
 		this.listAllFiles(new File("code"), sampling);
 		
 		System.out.println("Bugs: " + bugs);
+		System.out.println("Solver: " + ConfigurationValidator.getTotalStats().since(solverBefore));
 		System.out.println("Configurations: " + configurations + "\n");
 	}
 	
@@ -36,12 +36,12 @@ public class BugCheckerCombinationThreeAlgorithms {
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("One-Enabled, One-Disabled and three-wise");
-//		checker.checkSampling(new ConstrainedOneEnabled(), new ConstrainedOneDisabled(), new ConstrainedTwiseSampling(3));
+//		checker.checkSampling(new ConstrainedOneEnabledOnewise(), new ConstrainedOneDisabledOnewise(), new ConstrainedTwiseSampling(3));
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("One-Enabled, One-Disabled and four-wise");
-//		checker.checkSampling(new ConstrainedOneEnabled(), new ConstrainedOneDisabled(), new ConstrainedTwiseSampling(4));
+//		System.out.println("One-Enabled, One-Disabled and local four-wise");
+//		checker.checkSampling(new ConstrainedOneEnabledOnewise(), new ConstrainedOneDisabledOnewise(), new ConstrainedTwiseSampling(4, true));
 		
 		configurations = 0;
 		bugs = 0;
@@ -56,12 +56,12 @@ public class BugCheckerCombinationThreeAlgorithms {
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("One-Enabled, All-Enabled-Disabled and three-wise");
-//		checker.checkSampling(new ConstrainedOneEnabled(), new ConstrainedAllEnabledDisabled(), new ConstrainedTwiseSampling(3));
+//		checker.checkSampling(new ConstrainedOneEnabledOnewise(), new ConstrainedAllEnabledDisabledOnewise(), new ConstrainedTwiseSampling(3));
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("One-Enabled, All-Enabled-Disabled and four-wise");
-//		checker.checkSampling(new ConstrainedOneEnabled(), new ConstrainedAllEnabledDisabled(), new ConstrainedTwiseSampling(4));
+//		System.out.println("One-Enabled, All-Enabled-Disabled and local four-wise");
+//		checker.checkSampling(new ConstrainedOneEnabledOnewise(), new ConstrainedAllEnabledDisabledOnewise(), new ConstrainedTwiseSampling(4, true));
 		
 		configurations = 0;
 		bugs = 0;
@@ -76,12 +76,12 @@ public class BugCheckerCombinationThreeAlgorithms {
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("One-Enabled, three-wise and stmt-coverage");
-//		checker.checkSampling(new ConstrainedOneEnabled(), new ConstrainedTwiseSampling(3), new StmtCoverageSampling());
+//		checker.checkSampling(new ConstrainedOneEnabledOnewise(), new ConstrainedTwiseSampling(3), new ConstrainedStmtCoverageSampling());
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("One-Enabled, four-wise and stmt-coverage");
-//		checker.checkSampling(new ConstrainedOneEnabled(), new ConstrainedTwiseSampling(4), new StmtCoverageSampling());
+//		System.out.println("One-Enabled, local four-wise and stmt-coverage");
+//		checker.checkSampling(new ConstrainedOneEnabledOnewise(), new ConstrainedTwiseSampling(4, true), new ConstrainedStmtCoverageSampling());
 		
 		configurations = 0;
 		bugs = 0;
@@ -91,12 +91,12 @@ public class BugCheckerCombinationThreeAlgorithms {
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("One-Disabled, All-Enabled-Disabled and three-wise");
-//		checker.checkSampling(new ConstrainedOneDisabled(), new ConstrainedAllEnabledDisabled(), new ConstrainedTwiseSampling(3));
+//		checker.checkSampling(new ConstrainedOneDisabledOnewise(), new ConstrainedAllEnabledDisabledOnewise(), new ConstrainedTwiseSampling(3));
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("One-Disabled, All-Enabled-Disabled and four-wise");
-//		checker.checkSampling(new ConstrainedOneDisabled(), new ConstrainedAllEnabledDisabled(), new ConstrainedTwiseSampling(4));
+//		System.out.println("One-Disabled, All-Enabled-Disabled and local four-wise");
+//		checker.checkSampling(new ConstrainedOneDisabledOnewise(), new ConstrainedAllEnabledDisabledOnewise(), new ConstrainedTwiseSampling(4, true));
 		
 		configurations = 0;
 		bugs = 0;
@@ -188,9 +188,9 @@ public class BugCheckerCombinationThreeAlgorithms {
 		
 		if (samplingAlgorithm1 instanceof ConstrainedTwiseSampling){
 			if (project.equals("busybox")){
-				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file, new File("featureModel/busybox.dimacs.ca2.csv"));
+				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file, "busybox");
 			} else if (project.equals("linux")){
-				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file,  new File("featureModel/linux.dimacs.ca2.csv"));
+				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file, "linux");
 			}
 		} else if (samplingAlgorithm1 instanceof ConstrainedAllEnabledDisabledOnewise){
 			if (project.equals("busybox")){
@@ -216,9 +216,9 @@ public class BugCheckerCombinationThreeAlgorithms {
 		
 		if (samplingAlgorithm2 instanceof ConstrainedTwiseSampling){
 			if (project.equals("busybox")){
-				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file, new File("featureModel/busybox.dimacs.ca2.csv"));
+				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file, "busybox");
 			} else if (project.equals("linux")){
-				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file,  new File("featureModel/linux.dimacs.ca2.csv"));
+				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file, "linux");
 			}
 		} else if (samplingAlgorithm2 instanceof ConstrainedAllEnabledDisabledOnewise){
 			if (project.equals("busybox")){
@@ -244,9 +244,9 @@ public class BugCheckerCombinationThreeAlgorithms {
 		
 		if (samplingAlgorithm3 instanceof ConstrainedTwiseSampling){
 			if (project.equals("busybox")){
-				sampling3 = ((ConstrainedTwiseSampling)samplingAlgorithm3).getSamples(file, new File("featureModel/busybox.dimacs.ca2.csv"));
+				sampling3 = ((ConstrainedTwiseSampling)samplingAlgorithm3).getSamples(file, "busybox");
 			} else if (project.equals("linux")){
-				sampling3 = ((ConstrainedTwiseSampling)samplingAlgorithm3).getSamples(file,  new File("featureModel/linux.dimacs.ca2.csv"));
+				sampling3 = ((ConstrainedTwiseSampling)samplingAlgorithm3).getSamples(file, "linux");
 			}
 		} else if (samplingAlgorithm3 instanceof ConstrainedAllEnabledDisabledOnewise){
 			if (project.equals("busybox")){
@@ -41,32 +41,32 @@ public class BugCheckerCombinationTwoAlgorithms {
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("Threewise and One-Enabled:");
-//		checker.checkSampling(new ConstrainedTwiseSampling(3), new ConstrainedOneEnabled());
+//		checker.checkSampling(new ConstrainedTwiseSampling(3), new ConstrainedOneEnabledOnewise());
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("Fourwise and One-Enabled:");
-//		checker.checkSampling(new ConstrainedTwiseSampling(4), new ConstrainedOneEnabled());
+//		System.out.println("Local fourwise and One-Enabled:");
+//		checker.checkSampling(new ConstrainedTwiseSampling(4, true), new ConstrainedOneEnabledOnewise());
 		
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("Threewise and One-Disabled:");
-//		checker.checkSampling(new ConstrainedTwiseSampling(3), new ConstrainedOneDisabled());
+//		checker.checkSampling(new ConstrainedTwiseSampling(3), new ConstrainedOneDisabledOnewise());
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("Fourwise and One-Disabled:");
-//		checker.checkSampling(new ConstrainedTwiseSampling(4), new ConstrainedOneDisabled());
+//		System.out.println("Local fourwise and One-Disabled:");
+//		checker.checkSampling(new ConstrainedTwiseSampling(4, true), new ConstrainedOneDisabledOnewise());
 		
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("Threewise and All-Enabled-Disabled:");
-//		checker.checkSampling(new ConstrainedTwiseSampling(3), new ConstrainedAllEnabledDisabled());
+//		checker.checkSampling(new ConstrainedTwiseSampling(3), new ConstrainedAllEnabledDisabledOnewise());
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("Fourwise and All-Enabled-Disabled:");
-//		checker.checkSampling(new ConstrainedTwiseSampling(4), new ConstrainedAllEnabledDisabled());
+//		System.out.println("Local fourwise and All-Enabled-Disabled:");
+//		checker.checkSampling(new ConstrainedTwiseSampling(4, true), new ConstrainedAllEnabledDisabledOnewise());
 		
 		configurations = 0;
 		bugs = 0;
@@ -106,12 +106,12 @@ public class BugCheckerCombinationTwoAlgorithms {
 //		configurations = 0;
 //		bugs = 0;
 //		System.out.println("Stmt-coverage and Threewise:");
-//		checker.checkSampling(new StmtCoverageSampling(), new ConstrainedTwiseSampling(3));
+//		checker.checkSampling(new ConstrainedStmtCoverageSampling(), new ConstrainedTwiseSampling(3));
 		
 //		configurations = 0;
 //		bugs = 0;
-//		System.out.println("Stmt-coverage and Fourwise:");
-//		checker.checkSampling(new StmtCoverageSampling(), new ConstrainedTwiseSampling(4));
+//		System.out.println("Stmt-coverage and Local fourwise:");
+//		checker.checkSampling(new ConstrainedStmtCoverageSampling(), new ConstrainedTwiseSampling(4, true));
 	}
 	
 	public void checkSampling(SamplingAlgorithm sampling1, SamplingAlgorithm sampling2) throws Exception {
@@ -193,9 +193,9 @@ public class BugCheckerCombinationTwoAlgorithms {
 		
 		if (samplingAlgorithm1 instanceof ConstrainedTwiseSampling){
 			if (project.equals("busybox")){
-				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file, new File("featureModel/busybox.dimacs.ca2.csv"));
+				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file, "busybox");
 			} else if (project.equals("linux")){
-				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file,  new File("featureModel/linux.dimacs.ca2.csv"));
+				sampling1 = ((ConstrainedTwiseSampling)samplingAlgorithm1).getSamples(file, "linux");
 			}
 		} else if (samplingAlgorithm1 instanceof ConstrainedAllEnabledDisabledOnewise){
 			if (project.equals("busybox")){
@@ -221,9 +221,9 @@ public class BugCheckerCombinationTwoAlgorithms {
 		
 		if (samplingAlgorithm2 instanceof ConstrainedTwiseSampling){
 			if (project.equals("busybox")){
-				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file, new File("featureModel/busybox.dimacs.ca2.csv"));
+				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file, "busybox");
 			} else if (project.equals("linux")){
-				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file,  new File("featureModel/linux.dimacs.ca2.csv"));
+				sampling2 = ((ConstrainedTwiseSampling)samplingAlgorithm2).getSamples(file, "linux");
 			}
 		} else if (samplingAlgorithm2 instanceof ConstrainedAllEnabledDisabledOnewise){
 			if (project.equals("busybox")){
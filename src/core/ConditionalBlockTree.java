@@ -0,0 +1,564 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * <p>ConditionalBlockTree is the nesting of the conditional blocks (#if / #ifdef / #ifndef, #elif, #else .. #endif)
+ * of a C source, built in one pass of {@link DirectiveLexer}. Every block has its local condition (its own test
+ * and the negation of the earlier branches of its chain) and its presence condition (the conjunction of the local
+ * conditions from the root), as {@link PresenceCondition} int formulas over the macros of the source.</p>
+ * <p>Conditions are read as booleans, as the rest of this project does: "defined(X)", "defined X" and "X" are the
+ * literal X, integer constants are true unless zero, and "!", "&amp;&amp;", "||" and parentheses combine them. Any
+ * other expression (comparison, arithmetic, function-like macro) becomes an opaque atom named by its text, e.g.
+ * "LINUX_VERSION_CODE&gt;=KERNEL_VERSION(2,6,0)". A configuration does not decide an atom, so coverage treats it as
+ * unknown: a block counts as enabled if some value of its atoms enables it ({@link #isEnabled}). An unbalanced
+ * #else or #endif is ignored and blocks still open at the end of the source end there.</p>
+ * <p>Trees are immutable and cached by content hash ({@link DirectiveIndex#getHash}), so {@link #forFile} parses a
+ * source once however many paths or runs ask for it.</p>
+ */
+public final class ConditionalBlockTree {
+
+	private static final Map<String, ConditionalBlockTree> TREES = new ConcurrentHashMap<String, ConditionalBlockTree>();
+	private static final AtomicLong HITS = new AtomicLong();
+	private static final AtomicLong MISSES = new AtomicLong();
+
+	/** Atoms a presence condition may test for {@link #isEnabled} to try all their values. */
+	public static final int MAX_ENUMERATED_ATOMS = 16;
+
+	private final List<String> macros = new ArrayList<String>();
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final BitSet atoms = new BitSet();
+	private final List<Block> blocks = new ArrayList<Block>();
+	private final Block root;
+
+	private ConditionalBlockTree(DirectiveLexer lexer) {
+		this.macros.add(null);
+		this.root = new Block(null, null, 0, PresenceCondition.constant(true));
+		this.parse(lexer);
+	}
+
+	public static void main(String[] args) throws Exception {
+		File file = new File(args.length > 0 ? args[0] : "bugs/busybox/archival/tar.c");
+		long start = System.nanoTime();
+		ConditionalBlockTree tree = ConditionalBlockTree.forFile(file);
+		long parsed = System.nanoTime();
+		ConditionalBlockTree.forFile(file);
+		System.out.println(tree.getBlocks().size() + " blocks, " + tree.getNumberOfMacros() + " macros; parsed in "
+				+ (parsed - start) / 1000 + " us, cached in " + (System.nanoTime() - parsed) / 1000 + " us");
+		for (Block block : tree.getBlocks()){
+			StringBuilder indent = new StringBuilder();
+			for (int i = 1; i < block.getDepth(); i++){
+				indent.append("  ");
+			}
+			System.out.println(indent + "" + block.getLine() + "-" + block.getEndLine() + " " + block.getKind() + ": "
+					+ tree.toString(block.getPresenceCondition()));
+		}
+	}
+
+	/***
+	 * <p>The tree of a source, parsed once per content.</p>
+	 * @param file C source or header
+	 * @return the shared tree
+	 * @throws IOException
+	 */
+	public static ConditionalBlockTree forFile(File file) throws IOException {
+		String hash = DirectiveIndex.getDefault().getHash(file);
+		ConditionalBlockTree tree = TREES.get(hash);
+		if (tree != null){
+			HITS.incrementAndGet();
+			return tree;
+		}
+		MISSES.incrementAndGet();
+		tree = new ConditionalBlockTree(DirectiveLexer.forFile(file));
+		ConditionalBlockTree previous = TREES.putIfAbsent(hash, tree);
+		return (previous != null) ? previous : tree;
+	}
+
+	/***
+	 * <p>Parses a source without caching it.</p>
+	 */
+	public static ConditionalBlockTree parse(CharSequence source) {
+		return new ConditionalBlockTree(new DirectiveLexer(source));
+	}
+
+	public static long getCacheHits() {
+		return HITS.get();
+	}
+
+	public static long getCacheMisses() {
+		return MISSES.get();
+	}
+
+	private void parse(DirectiveLexer lexer) {
+		Block current = this.root;
+		DirectiveLexer.Kind kind;
+		while ((kind = lexer.nextDirective()) != null) {
+			switch (kind) {
+			case IF: case IFDEF: case IFNDEF: {
+				int[] test = this.readCondition(lexer, kind);
+				current = this.open(current, kind, lexer.getLine(), test, PresenceCondition.constant(true));
+				break;
+			}
+			case ELIF: case ELIFDEF: case ELIFNDEF: case ELSE: {
+				if (current == this.root){
+					break;
+				}
+				int[] test = (kind == DirectiveLexer.Kind.ELSE) ? PresenceCondition.constant(true) : this.readCondition(lexer, kind);
+				// Earlier branches of the chain did not hold..
+				int[] previous = PresenceCondition.and(current.previous, PresenceCondition.not(current.test));
+				current.endLine = lexer.getLine();
+				current = this.open(current.parent, kind, lexer.getLine(), test, previous);
+				break;
+			}
+			case ENDIF:
+				if (current != this.root){
+					current.endLine = lexer.getLine();
+					current = current.parent;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		int last = lexer.getCurrentLine();
+		for (Block block = current; block != this.root; block = block.parent){
+			block.endLine = last;
+		}
+		this.root.endLine = last;
+	}
+
+	private Block open(Block parent, DirectiveLexer.Kind kind, int line, int[] test, int[] previous) {
+		Block block = new Block(parent, kind, line, PresenceCondition.and(previous, test));
+		block.test = test;
+		block.previous = previous;
+		block.presenceCondition = PresenceCondition.and(parent.presenceCondition, block.condition);
+		parent.children.add(block);
+		this.blocks.add(block);
+		return block;
+	}
+
+	/***
+	 * <p>The test of a conditional directive as a formula.</p>
+	 */
+	private int[] readCondition(DirectiveLexer lexer, DirectiveLexer.Kind kind) {
+		List<String> tokens = new ArrayList<String>();
+		List<Integer> types = new ArrayList<Integer>();
+		while (lexer.nextToken() != DirectiveLexer.END) {
+			tokens.add(lexer.getToken());
+			types.add(lexer.getTokenType());
+		}
+		if (kind == DirectiveLexer.Kind.IFDEF || kind == DirectiveLexer.Kind.ELIFDEF
+				|| kind == DirectiveLexer.Kind.IFNDEF || kind == DirectiveLexer.Kind.ELIFNDEF){
+			if (tokens.isEmpty()){
+				return PresenceCondition.constant(false);
+			}
+			int[] defined = PresenceCondition.literal(this.getOrAddId(tokens.get(0)));
+			return (kind == DirectiveLexer.Kind.IFDEF || kind == DirectiveLexer.Kind.ELIFDEF) ? defined : PresenceCondition.not(defined);
+		}
+		ExpressionParser parser = new ExpressionParser(tokens, types);
+		try {
+			int[] formula = parser.parseOr();
+			if (parser.position == tokens.size()){
+				return formula;
+			}
+		} catch (IllegalStateException e){
+			// Not a boolean expression we can read..
+		}
+		return tokens.isEmpty() ? PresenceCondition.constant(false)
+				: PresenceCondition.literal(this.getOrAddId(ConditionalBlockTree.join(tokens, 0, tokens.size())));
+	}
+
+	private int getOrAddId(String macro) {
+		Integer id = this.ids.get(macro);
+		if (id == null){
+			id = this.macros.size();
+			this.macros.add(macro);
+			this.ids.put(macro, id);
+		}
+		return id;
+	}
+
+	private static String join(List<String> tokens, int from, int to) {
+		StringBuilder text = new StringBuilder();
+		for (int i = from; i < to; i++){
+			text.append(tokens.get(i));
+		}
+		return text.toString();
+	}
+
+	public Block getRoot() {
+		return root;
+	}
+
+	/***
+	 * <p>Every conditional block (not the root), in source order.</p>
+	 */
+	public List<Block> getBlocks() {
+		return Collections.unmodifiableList(blocks);
+	}
+
+	/***
+	 * <p>The innermost block containing a line (the root if none); a directive line belongs to the enclosing
+	 * block.</p>
+	 */
+	public Block getBlockAt(int line) {
+		Block block = this.root;
+		boolean descended = true;
+		while (descended) {
+			descended = false;
+			for (Block child : block.children){
+				if (child.line < line && line < child.endLine){
+					block = child;
+					descended = true;
+					break;
+				}
+			}
+		}
+		return block;
+	}
+
+	public int[] getPresenceCondition(int line) {
+		return this.getBlockAt(line).presenceCondition;
+	}
+
+	public int getNumberOfMacros() {
+		return macros.size() - 1;
+	}
+
+	/***
+	 * <p>Name of a formula variable (a macro, or the text of an atom).</p>
+	 */
+	public String getMacro(int id) {
+		return macros.get(id);
+	}
+
+	/***
+	 * <p>Whether a formula variable is an atom (a comparison, arithmetic or function-like macro) rather than a macro.</p>
+	 */
+	public boolean isAtom(int id) {
+		return atoms.get(id);
+	}
+
+	/***
+	 * <p>Formula variable of a macro, or 0 if the source does not test it.</p>
+	 */
+	public int getId(String macro) {
+		Integer id = ids.get(macro);
+		return (id == null) ? 0 : id;
+	}
+
+	public String toString(int[] formula) {
+		return PresenceCondition.toString(formula, this.macros.toArray(new String[0]));
+	}
+
+	/***
+	 * <p>The assignment of a configuration: names are enabled, "!name" and macros it does not mention are not. Atoms
+	 * are false here; {@link #isEnabled} tries both values.</p>
+	 */
+	public boolean[] getValues(Collection<String> configuration) {
+		boolean[] values = new boolean[this.macros.size()];
+		for (String macro : configuration){
+			Integer id = this.ids.get(macro);
+			if (id != null){
+				values[id] = true;
+			}
+		}
+		return values;
+	}
+
+	/***
+	 * <p>Whether an assignment may enable a block: its presence condition holds for some value of the atoms it
+	 * tests. Up to {@link #MAX_ENUMERATED_ATOMS} atoms are tried exhaustively; a block testing more counts as
+	 * enabled.</p>
+	 * @param values assignment from {@link #getValues}
+	 */
+	public boolean isEnabled(Block block, boolean[] values) {
+		int[] formula = block.presenceCondition;
+		int[] unknown = new int[formula.length];
+		int k = 0;
+		for (int code : formula){
+			int id = Math.abs(code);
+			if (code != PresenceCondition.AND && code != PresenceCondition.OR && id != PresenceCondition.TRUE && this.atoms.get(id)){
+				boolean seen = false;
+				for (int i = 0; i < k && !seen; i++){
+					seen = unknown[i] == id;
+				}
+				if (!seen){
+					unknown[k++] = id;
+				}
+			}
+		}
+		if (k == 0){
+			return PresenceCondition.evaluate(formula, values);
+		}
+		if (k > MAX_ENUMERATED_ATOMS){
+			return true;
+		}
+		boolean[] tried = values.clone();
+		for (int mask = 0; mask < (1 << k); mask++){
+			for (int i = 0; i < k; i++){
+				tried[unknown[i]] = (mask & (1 << i)) != 0;
+			}
+			if (PresenceCondition.evaluate(formula, tried)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/***
+	 * <p>Number of blocks enabled by at least one of the configurations (statement coverage at block level; atoms
+	 * are unknown, see {@link #isEnabled}).</p>
+	 */
+	public int getNumberOfCovered(Collection<? extends Collection<String>> configurations) {
+		boolean[] covered = new boolean[this.blocks.size()];
+		int count = 0;
+		for (Collection<String> configuration : configurations){
+			boolean[] values = this.getValues(configuration);
+			for (int i = 0; i < covered.length; i++){
+				if (!covered[i] && this.isEnabled(this.blocks.get(i), values)){
+					covered[i] = true;
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/***
+	 * <p>Recursive descent over the tokens of an #if / #elif, see the class comment.</p>
+	 */
+	private final class ExpressionParser {
+
+		private final List<String> tokens;
+		private final List<Integer> types;
+		private int position = 0;
+
+		ExpressionParser(List<String> tokens, List<Integer> types) {
+			this.tokens = tokens;
+			this.types = types;
+		}
+
+		int[] parseOr() {
+			int[] formula = this.parseAnd();
+			while (this.is("||")) {
+				this.position++;
+				formula = PresenceCondition.or(formula, this.parseAnd());
+			}
+			return formula;
+		}
+
+		private int[] parseAnd() {
+			int[] formula = this.parseUnary();
+			while (this.is("&&")) {
+				this.position++;
+				formula = PresenceCondition.and(formula, this.parseUnary());
+			}
+			return formula;
+		}
+
+		private int[] parseUnary() {
+			if (this.is("!")){
+				this.position++;
+				return PresenceCondition.not(this.parseUnary());
+			}
+			int start = this.position;
+			int[] formula = this.parsePrimary();
+			if (this.position < this.tokens.size() && !this.is("&&") && !this.is("||") && !this.is(")")){
+				// A comparison or arithmetic: the whole relation is one atom..
+				int depth = 0;
+				while (this.position < this.tokens.size()) {
+					if (depth == 0 && (this.is("&&") || this.is("||") || this.is(")"))){
+						break;
+					}
+					if (this.is("(")){
+						depth++;
+					} else if (this.is(")")){
+						depth--;
+					}
+					this.position++;
+				}
+				return this.atom(start);
+			}
+			return formula;
+		}
+
+		private int[] parsePrimary() {
+			if (this.position >= this.tokens.size()){
+				throw new IllegalStateException("Missing operand");
+			}
+			String token = this.tokens.get(this.position);
+			int type = this.types.get(this.position);
+			int start = this.position++;
+			if (token.equals("(")){
+				int[] formula = this.parseOr();
+				if (!this.is(")")){
+					throw new IllegalStateException("Missing )");
+				}
+				this.position++;
+				return formula;
+			}
+			if (token.equals("defined")){
+				boolean parenthesis = this.is("(");
+				if (parenthesis){
+					this.position++;
+				}
+				if (this.position >= this.tokens.size() || this.types.get(this.position) != DirectiveLexer.IDENTIFIER){
+					throw new IllegalStateException("defined without a macro");
+				}
+				int id = ConditionalBlockTree.this.getOrAddId(this.tokens.get(this.position++));
+				if (parenthesis){
+					if (!this.is(")")){
+						throw new IllegalStateException("Missing )");
+					}
+					this.position++;
+				}
+				return PresenceCondition.literal(id);
+			}
+			if (type == DirectiveLexer.NUMBER){
+				Long value = ConditionalBlockTree.parseInteger(token);
+				if (value != null){
+					return PresenceCondition.constant(value != 0);
+				}
+				return this.atom(start);
+			}
+			if (type == DirectiveLexer.IDENTIFIER){
+				if (this.is("(")){
+					// Function-like macro call, e.g. KERNEL_VERSION(2,6,0)..
+					int depth = 0;
+					do {
+						if (this.is("(")){
+							depth++;
+						} else if (this.is(")")){
+							depth--;
+						}
+						this.position++;
+					} while (depth > 0 && this.position < this.tokens.size());
+					return this.atom(start);
+				}
+				return PresenceCondition.literal(ConditionalBlockTree.this.getOrAddId(token));
+			}
+			return this.atom(start);
+		}
+
+		private int[] atom(int start) {
+			int id = ConditionalBlockTree.this.getOrAddId(ConditionalBlockTree.join(this.tokens, start, this.position));
+			ConditionalBlockTree.this.atoms.set(id);
+			return PresenceCondition.literal(id);
+		}
+
+		private boolean is(String token) {
+			return this.position < this.tokens.size() && this.tokens.get(this.position).equals(token)
+					&& this.types.get(this.position) == DirectiveLexer.PUNCTUATOR;
+		}
+
+	}
+
+	/***
+	 * <p>Value of a C integer constant (decimal, octal, hexadecimal; u / l suffixes), or null.</p>
+	 */
+	private static Long parseInteger(String token) {
+		String digits = token;
+		while (digits.length() > 1 && "uUlL".indexOf(digits.charAt(digits.length() - 1)) >= 0) {
+			digits = digits.substring(0, digits.length() - 1);
+		}
+		try {
+			if (digits.startsWith("0x") || digits.startsWith("0X")){
+				return Long.parseLong(digits.substring(2), 16);
+			}
+			if (digits.length() > 1 && digits.startsWith("0")){
+				return Long.parseLong(digits.substring(1), 8);
+			}
+			return Long.parseLong(digits);
+		} catch (NumberFormatException e){
+			return null;
+		}
+	}
+
+	/***
+	 * <p>A conditional block: the lines strictly between its directive and the next directive of its chain.</p>
+	 */
+	public static final class Block {
+
+		private final Block parent;
+		private final DirectiveLexer.Kind kind;
+		private final int line;
+		private int endLine = Integer.MAX_VALUE;
+		private final int depth;
+		private final List<Block> children = new ArrayList<Block>();
+		private final int[] condition;
+		private int[] presenceCondition;
+		// Own test, and what the earlier branches of the chain leave (while parsing)..
+		private int[] test = PresenceCondition.constant(true);
+		private int[] previous = PresenceCondition.constant(true);
+
+		Block(Block parent, DirectiveLexer.Kind kind, int line, int[] condition) {
+			this.parent = parent;
+			this.kind = kind;
+			this.line = line;
+			this.depth = (parent == null) ? 0 : parent.depth + 1;
+			this.condition = condition;
+			this.presenceCondition = condition;
+		}
+
+		public Block getParent() {
+			return parent;
+		}
+
+		/***
+		 * <p>Directive opening the block (null for the root).</p>
+		 */
+		public DirectiveLexer.Kind getKind() {
+			return kind;
+		}
+
+		/***
+		 * <p>Line of the opening directive (0 for the root).</p>
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/***
+		 * <p>Line of the directive closing the block (#elif, #else or #endif), or the last line.</p>
+		 */
+		public int getEndLine() {
+			return endLine;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		public List<Block> getChildren() {
+			return Collections.unmodifiableList(children);
+		}
+
+		/***
+		 * <p>Condition relative to the parent block.</p>
+		 */
+		public int[] getCondition() {
+			return condition;
+		}
+
+		public int[] getPresenceCondition() {
+			return presenceCondition;
+		}
+
+		public boolean isEnabled(boolean[] values) {
+			return PresenceCondition.evaluate(this.presenceCondition, values);
+		}
+
+	}
+
+}
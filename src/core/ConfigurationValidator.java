@@ -0,0 +1,325 @@
+package core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * <p>ConfigurationValidator tells which of many configurations ("A", "!B", ...; full or partial) a feature model
+ * allows, each one a single solver call under assumptions on a {@link Sat4jSession} that parsed the model once,
+ * instead of building a FeatureExpr per configuration and checking it against a TypeChef FeatureModel (code that
+ * still needs one gets it, loaded once per JVM, from {@link FeatureModelRegistry}).</p>
+ * <p>Macros the model does not name are left free, as TypeChef leaves unknown features; "!A" disables A (TypeChef
+ * took it for another feature, see {@link #enabledOnly}) and a configuration holding both "A" and "!A" is invalid
+ * without a solver call. Sessions are not thread-safe: a check takes an idle session
+ * (parsing a new one only when all are busy) and gives it back, so there are never more sessions than checks
+ * that ran at once, whichever threads ran them. Parallel checks run on an executor of daemon threads kept until
+ * {@link #close()}; one validator per model is shared through {@link #forFile}.</p>
+ */
+public final class ConfigurationValidator {
+
+	private static final Map<String, ConfigurationValidator> INSTANCES = new ConcurrentHashMap<String, ConfigurationValidator>();
+
+	private final String file;
+	private final DimacsSymbolTable symbols;
+	private final List<Sat4jSession> created = Collections.synchronizedList(new ArrayList<Sat4jSession>());
+	private final Queue<Sat4jSession> idle = new ConcurrentLinkedQueue<Sat4jSession>();
+	private ThreadPoolExecutor executor = null;
+
+	private ConfigurationValidator(String file) throws Exception {
+		this.file = file;
+		this.symbols = DimacsSymbolTable.forFile(file);
+	}
+
+	public static void main(String[] args) throws Exception {
+		ConfigurationValidator validator = ConfigurationValidator.forFile("featureModel/busybox.dimacs");
+		List<List<String>> configurations = new ArrayList<List<String>>();
+		configurations.add(Arrays.asList("ENABLE_TAR", "ENABLE_FEATURE_TAR_CREATE"));
+		configurations.add(Arrays.asList("!ENABLE_TAR", "ENABLE_FEATURE_TAR_CREATE"));
+		configurations.add(Arrays.asList("ENABLE_TAR", "!ENABLE_TAR"));
+		configurations.add(Arrays.asList("ENABLE_NOT_IN_THE_MODEL"));
+		System.out.println(configurations + ": valid " + validator.validate(configurations));
+		System.out.println("Enabled macros only (as TypeChef): valid " + validator.validate(ConfigurationValidator.enabledOnly(configurations)));
+		for (int i = 0; i < 3; i++){
+			System.out.println("4 threads: valid " + validator.validate(configurations, 4));
+		}
+		System.out.println(validator);
+	}
+
+	/***
+	 * <p>Returns the shared validator of a DIMACS file.</p>
+	 * @param file DIMACS file path
+	 * @return the validator (sessions are created on first use, per thread)
+	 * @throws Exception
+	 */
+	public static ConfigurationValidator forFile(String file) throws Exception {
+		String key = new File(file).getCanonicalPath();
+		ConfigurationValidator validator = INSTANCES.get(key);
+		if (validator == null){
+			synchronized (INSTANCES){
+				validator = INSTANCES.get(key);
+				if (validator == null){
+					validator = new ConfigurationValidator(file);
+					INSTANCES.put(key, validator);
+				}
+			}
+		}
+		return validator;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/***
+	 * <p>Whether the model allows a configuration.</p>
+	 */
+	public boolean isValid(Collection<String> configuration) throws Exception {
+		int[] assumptions = this.toAssumptions(configuration);
+		if (assumptions == null){
+			return false;
+		}
+		Sat4jSession session = this.acquire();
+		try {
+			return session.solve(assumptions) != null;
+		} finally {
+			this.idle.add(session);
+		}
+	}
+
+	/***
+	 * <p>Checks configurations on the calling thread, on one session.</p>
+	 * @param configurations full or partial configurations
+	 * @return bit i set if configuration i is valid
+	 * @throws Exception
+	 */
+	public BitSet validate(List<? extends Collection<String>> configurations) throws Exception {
+		BitSet valid = new BitSet(configurations.size());
+		Sat4jSession session = this.acquire();
+		try {
+			this.validate(session, configurations, 0, configurations.size(), valid);
+		} finally {
+			this.idle.add(session);
+		}
+		return valid;
+	}
+
+	/***
+	 * <p>Checks configurations on a number of threads, each taking chunks in turn on one session.</p>
+	 * @param configurations full or partial configurations
+	 * @param threads number of threads
+	 * @return bit i set if configuration i is valid
+	 * @throws Exception
+	 */
+	public BitSet validate(final List<? extends Collection<String>> configurations, int threads) throws Exception {
+		threads = Math.max(1, Math.min(threads, configurations.size()));
+		if (threads == 1){
+			return this.validate(configurations);
+		}
+		final int chunk = Math.max(1, configurations.size() / (threads * 4));
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = this.getExecutor(threads);
+		List<Future<BitSet>> futures = new ArrayList<Future<BitSet>>();
+		try {
+			for (int t = 0; t < threads; t++){
+				futures.add(executor.submit(new Callable<BitSet>() {
+					@Override
+					public BitSet call() throws Exception {
+						BitSet valid = new BitSet(configurations.size());
+						Sat4jSession session = ConfigurationValidator.this.acquire();
+						try {
+							for (int from = next.getAndAdd(chunk); from < configurations.size(); from = next.getAndAdd(chunk)){
+								ConfigurationValidator.this.validate(session, configurations, from,
+										Math.min(configurations.size(), from + chunk), valid);
+							}
+						} finally {
+							ConfigurationValidator.this.idle.add(session);
+						}
+						return valid;
+					}
+				}));
+			}
+			BitSet valid = new BitSet(configurations.size());
+			for (Future<BitSet> future : futures){
+				try {
+					valid.or(future.get());
+				} catch (ExecutionException e){
+					if (e.getCause() instanceof Exception){
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+			return valid;
+		} finally {
+			// A failed thread leaves no chunks for the others..
+			next.set(configurations.size());
+		}
+	}
+
+	private void validate(Sat4jSession session, List<? extends Collection<String>> configurations, int from, int to,
+			BitSet valid) throws Exception {
+		for (int i = from; i < to; i++){
+			int[] assumptions = this.toAssumptions(configurations.get(i));
+			if (assumptions != null && session.solve(assumptions) != null){
+				valid.set(i);
+			}
+		}
+	}
+
+	/***
+	 * <p>The configurations as the TypeChef check saw them, for callers that keep its results:
+	 * createDefinedExternal("!X") made a feature literally named "!X", which no model names, so only the enabled
+	 * macros of a configuration were checked against the model.</p>
+	 */
+	public static List<List<String>> enabledOnly(List<? extends Collection<String>> configurations) {
+		List<List<String>> enabled = new ArrayList<List<String>>(configurations.size());
+		for (Collection<String> configuration : configurations){
+			List<String> macros = new ArrayList<String>(configuration.size());
+			for (String macro : configuration){
+				if (!macro.startsWith("!")){
+					macros.add(macro);
+				}
+			}
+			enabled.add(macros);
+		}
+		return enabled;
+	}
+
+	/***
+	 * <p>The literals of a configuration over the model's variables, or null if it holds a macro both enabled and
+	 * disabled.</p>
+	 */
+	public int[] toAssumptions(Collection<String> configuration) {
+		int[] literals = new int[configuration.size()];
+		int length = 0;
+		List<String> unknown = null;
+		for (String macro : configuration){
+			boolean disabled = macro.startsWith("!");
+			String name = disabled ? macro.substring(1) : macro;
+			int id = this.symbols.getId(name);
+			if (id != 0){
+				literals[length++] = disabled ? -id : id;
+			} else {
+				if (unknown == null){
+					unknown = new ArrayList<String>();
+				}
+				unknown.add(macro);
+			}
+		}
+		if (unknown != null){
+			for (String macro : unknown){
+				if (!macro.startsWith("!") && unknown.contains("!" + macro)){
+					return null;
+				}
+			}
+		}
+		literals = Arrays.copyOf(literals, length);
+		Arrays.sort(literals);
+		for (int i = 0, j = length - 1; i < j; ){
+			int a = -literals[i];
+			int b = literals[j];
+			if (a == b){
+				return null;
+			} else if (a < b){
+				j--;
+			} else {
+				i++;
+			}
+		}
+		return literals;
+	}
+
+	/***
+	 * <p>An idle session, or a new one if all are busy; give it back to {@link #idle} once done.</p>
+	 */
+	private Sat4jSession acquire() throws Exception {
+		Sat4jSession session = this.idle.poll();
+		if (session == null){
+			session = new Sat4jSession(this.file);
+			this.created.add(session);
+		}
+		return session;
+	}
+
+	/***
+	 * <p>The executor of parallel checks, grown to the largest number of threads asked for so far.</p>
+	 */
+	private synchronized ExecutorService getExecutor(int threads) {
+		if (this.executor == null || this.executor.isShutdown()){
+			this.executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads, Sat4jSessionPool.daemonThreads("validator"));
+		} else if (this.executor.getMaximumPoolSize() < threads){
+			this.executor.setMaximumPoolSize(threads);
+			this.executor.setCorePoolSize(threads);
+		}
+		return this.executor;
+	}
+
+	/***
+	 * <p>Stops the threads of parallel checks (a later parallel check starts new ones). Sessions are kept.</p>
+	 */
+	public synchronized void close() {
+		if (this.executor != null){
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	/***
+	 * <p>Stats of the checks so far (parse time, solve time, conflicts, decisions, calls), summed over the sessions.</p>
+	 */
+	public QueryStats getStats() {
+		QueryStats stats = new QueryStats();
+		synchronized (this.created){
+			for (Sat4jSession session : this.created){
+				stats.add(session.getStats());
+			}
+		}
+		return stats;
+	}
+
+	/***
+	 * <p>Stats summed over every validator of this JVM, see {@link QueryStats#since} for the share of a run.</p>
+	 */
+	public static QueryStats getTotalStats() {
+		QueryStats stats = new QueryStats();
+		for (ConfigurationValidator validator : INSTANCES.values()){
+			stats.add(validator.getStats());
+		}
+		return stats;
+	}
+
+	/***
+	 * <p>Solver calls summed over the sessions created so far.</p>
+	 */
+	public long getSolverCalls() {
+		long calls = 0;
+		synchronized (this.created){
+			for (Sat4jSession session : this.created){
+				calls += session.getSolverCalls();
+			}
+		}
+		return calls;
+	}
+
+	@Override
+	public String toString() {
+		return this.file + ": " + this.created.size() + " sessions, " + this.getSolverCalls() + " solver calls";
+	}
+
+}
@@ -0,0 +1,166 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * <p>CoveringArrayCache keeps the products of recently used covering arrays, keyed by the array's canonical path,
+ * modification time and strength t, so a busybox run followed by a Linux run never gets the other model's array,
+ * and arrays of different strengths never share an entry, whatever their files are named.</p>
+ * <p>The products are views over a shared {@link CoveringArrayStore}, so the cache owns the stores it loads: it is
+ * bounded by weight rather than by entries, an array weighing its products x features literals (one bit each in
+ * the store), and the least recently used arrays are evicted together with their store once the total passes the
+ * limit (an array heavier than the limit is returned but neither it nor its store is kept). When an array is
+ * reloaded after its file changed, the entries of its older versions are dropped. All methods are thread-safe;
+ * loading happens outside the lock.</p>
+ */
+public final class CoveringArrayCache {
+
+	/** Default limit: about 4M literals, twice the Linux one-wise array. */
+	public static final long DEFAULT_MAX_WEIGHT = 4L * 1024 * 1024;
+
+	private final long maxWeight;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public CoveringArrayCache() {
+		this(DEFAULT_MAX_WEIGHT);
+	}
+
+	/***
+	 * @param maxWeight total number of literals kept
+	 */
+	public CoveringArrayCache(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+	public static void main(String[] args) throws Exception {
+		CoveringArrayCache cache = new CoveringArrayCache(20 * 1024);
+		File busybox = new File("featureModel/busybox.dimacs.ca2.csv");
+		File linux = new File("featureModel/linux.dimacs.ca1.csv");
+		System.out.println("busybox: " + cache.get(busybox, 2).size() + " products");
+		System.out.println("busybox: " + cache.get(busybox, 2).size() + " products");
+		System.out.println("linux: " + cache.get(linux, 1).size() + " products (heavier than the limit)");
+		System.out.println("busybox one-wise: " + cache.get(new File("featureModel/busybox.dimacs.ca1.csv"), 1).size() + " products");
+		System.out.println(cache);
+	}
+
+	/***
+	 * <p>The products of a covering array, loaded with {@link CoveringArraysUtils#getValidProducts(File)} on a miss.</p>
+	 * @param coveringArrayFile SPLCAT covering array
+	 * @param t strength of the array
+	 * @return the products (a new outer list each time, so callers may add to it)
+	 * @throws Exception
+	 */
+	public List<List<String>> get(File coveringArrayFile, int t) throws Exception {
+		File file = coveringArrayFile.getCanonicalFile();
+		String prefix = file.getPath() + "|";
+		String version = prefix + file.lastModified() + "|";
+		String key = version + t;
+		synchronized (this){
+			Entry entry = this.entries.get(key);
+			if (entry != null){
+				this.hits++;
+				return new ArrayList<List<String>>(entry.products);
+			}
+			this.misses++;
+		}
+
+		List<List<String>> products = new CoveringArraysUtils().getValidProducts(file);
+		long productWeight = 0;
+		for (List<String> product : products){
+			productWeight += product.size();
+		}
+
+		synchronized (this){
+			// Older versions of the same array are stale (the store already holds the new one)..
+			Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, Entry> stale = iterator.next();
+				if (stale.getKey().startsWith(prefix) && !stale.getKey().startsWith(version)){
+					this.weight -= stale.getValue().weight;
+					iterator.remove();
+				}
+			}
+			if (productWeight > this.maxWeight){
+				CoveringArrayStore.evict(file);
+			} else if (!this.entries.containsKey(key)){
+				this.entries.put(key, new Entry(file, products, productWeight));
+				this.weight += productWeight;
+				iterator = this.entries.entrySet().iterator();
+				while (this.weight > this.maxWeight && iterator.hasNext()) {
+					Entry eldest = iterator.next().getValue();
+					this.weight -= eldest.weight;
+					iterator.remove();
+					CoveringArrayStore.evict(eldest.file);
+					this.evictions++;
+				}
+			}
+		}
+		return new ArrayList<List<String>>(products);
+	}
+
+	/***
+	 * <p>Drops every array and its store.</p>
+	 */
+	public synchronized void clear() throws IOException {
+		for (Entry entry : this.entries.values()){
+			CoveringArrayStore.evict(entry.file);
+		}
+		this.entries.clear();
+		this.weight = 0;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "arrays " + this.entries.size() + ", weight " + this.weight + "/" + this.maxWeight + ", hits " + this.hits
+				+ ", misses " + this.misses + ", evictions " + this.evictions;
+	}
+
+	private static final class Entry {
+
+		final File file;
+		final List<List<String>> products;
+		final long weight;
+
+		Entry(File file, List<List<String>> products, long weight) {
+			this.file = file;
+			this.products = products;
+			this.weight = weight;
+		}
+
+	}
+
+}
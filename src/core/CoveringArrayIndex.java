@@ -0,0 +1,321 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * <p>CoveringArrayIndex maps every feature row of a SPLCAT covering array CSV to its byte offset and length, so a
+ * directive-restricted read ({@link #read}) fetches only the rows it needs with positional NIO reads.</p>
+ * <p>The index is built by one scan of the CSV and kept next to it in "&lt;csv&gt;.idx", valid as long as the CSV's
+ * size and modification time match the ones recorded in it. It is written to a temporary file and renamed, so an
+ * interrupted write never leaves a partial index, and an index whose length does not match its row count, or whose
+ * rows lie outside the CSV, is rebuilt.</p>
+ * <p>Layout: magic, version, CSV size and mtime, products, rows; then per row the name (length and UTF-8 bytes), the
+ * offset (long) and the length (int) of the line.</p>
+ */
+public final class CoveringArrayIndex {
+
+	private static final int MAGIC = 0x43414958; // "CAIX"
+	private static final int VERSION = 1;
+
+	private static final Map<String, CoveringArrayIndex> INDEXES = new ConcurrentHashMap<String, CoveringArrayIndex>();
+
+	private final File csv;
+	private final int numberOfProducts;
+	private final Map<String, Integer> rows;
+	private final long[] offsets;
+	private final int[] lengths;
+
+	private CoveringArrayIndex(File csv, int numberOfProducts, Map<String, Integer> rows, long[] offsets, int[] lengths) {
+		this.csv = csv;
+		this.numberOfProducts = numberOfProducts;
+		this.rows = rows;
+		this.offsets = offsets;
+		this.lengths = lengths;
+	}
+
+	public static void main(String[] args) throws IOException {
+		File csv = new File("featureModel/linux.dimacs.ca1.csv");
+		long start = System.currentTimeMillis();
+		CoveringArrayIndex index = CoveringArrayIndex.forFile(csv);
+		System.out.println("Index: " + index.getNumberOfRows() + " rows, " + (System.currentTimeMillis() - start) + " ms");
+
+		start = System.nanoTime();
+		CoveringArrayStore rows = index.read(Arrays.asList("DE600", "FB_CT65550", "NOT_IN_THE_ARRAY"));
+		System.out.println("Read " + rows.getNumberOfFeatures() + " rows in " + (System.nanoTime() - start) / 1000 + " us: "
+				+ rows.project(Arrays.asList("DE600", "FB_CT65550")));
+	}
+
+	/***
+	 * <p>Returns the index of a covering array CSV: from memory, else from "&lt;csv&gt;.idx", else built (and saved).</p>
+	 * @param csv SPLCAT covering array
+	 * @return the shared index
+	 * @throws IOException
+	 */
+	public static CoveringArrayIndex forFile(File csv) throws IOException {
+		File canonical = csv.getCanonicalFile();
+		String key = canonical.getPath() + ":" + canonical.length() + ":" + canonical.lastModified();
+		CoveringArrayIndex index = INDEXES.get(key);
+		if (index != null){
+			return index;
+		}
+
+		File sidecar = new File(canonical.getPath() + ".idx");
+		index = CoveringArrayIndex.load(sidecar, canonical);
+		if (index == null){
+			index = CoveringArrayIndex.build(canonical);
+			try {
+				index.save(sidecar);
+			} catch (IOException e){
+				System.err.println("Could not write covering array index " + sidecar + ": " + e.getMessage());
+			}
+		}
+		CoveringArrayIndex previous = INDEXES.putIfAbsent(key, index);
+		return (previous != null) ? previous : index;
+	}
+
+	/***
+	 * <p>Scans a CSV once, recording where every row starts and how long it is (line breaks excluded).</p>
+	 */
+	static CoveringArrayIndex build(File csv) throws IOException {
+		Map<String, Integer> rows = new HashMap<String, Integer>();
+		List<Long> offsets = new ArrayList<Long>();
+		List<Integer> lengths = new ArrayList<Integer>();
+
+		InputStream in = new BufferedInputStream(new FileInputStream(csv), 1 << 16);
+		try {
+			ByteArrayOutputStream name = new ByteArrayOutputStream();
+			long position = 0;
+			long lineStart = 0;
+			boolean header = true;
+			boolean inName = true;
+			int b;
+			while (true) {
+				b = in.read();
+				if (b == '\n' || b == -1){
+					int length = (int) (position - lineStart);
+					if (header){
+						header = false;
+					} else if (!inName && !rows.containsKey(name.toString("UTF-8"))){
+						rows.put(name.toString("UTF-8"), offsets.size());
+						offsets.add(lineStart);
+						lengths.add(length);
+					}
+					if (b == -1){
+						break;
+					}
+					position++;
+					lineStart = position;
+					name.reset();
+					inName = true;
+					continue;
+				}
+				position++;
+				if (b == ';'){
+					inName = false;
+				} else if (inName && b != '\r'){
+					name.write(b);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		int numberOfProducts = CoveringArrayIndex.countProducts(csv);
+
+		long[] offsetArray = new long[offsets.size()];
+		int[] lengthArray = new int[lengths.size()];
+		for (int i = 0; i < offsetArray.length; i++){
+			offsetArray[i] = offsets.get(i);
+			lengthArray[i] = lengths.get(i);
+		}
+		return new CoveringArrayIndex(csv, numberOfProducts, rows, offsetArray, lengthArray);
+	}
+
+	/***
+	 * <p>Number of products in the header, counted the way {@link CoveringArraysUtils} always did ("split(";")").</p>
+	 */
+	private static int countProducts(File csv) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(csv, "r");
+		try {
+			String header = raf.readLine();
+			return (header == null) ? 0 : header.split(";").length - 1;
+		} finally {
+			raf.close();
+		}
+	}
+
+	void save(File sidecar) throws IOException {
+		String[] names = new String[this.offsets.length];
+		for (Map.Entry<String, Integer> row : this.rows.entrySet()){
+			names[row.getValue()] = row.getKey();
+		}
+		// A temporary file of its own, renamed once complete (as CoveringArrayStore#convert does)..
+		File tmp = File.createTempFile(sidecar.getName(), ".tmp", sidecar.getAbsoluteFile().getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		boolean written = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(this.csv.length());
+			out.writeLong(this.csv.lastModified());
+			out.writeInt(this.numberOfProducts);
+			out.writeInt(names.length);
+			for (int i = 0; i < names.length; i++){
+				byte[] name = names[i].getBytes("UTF-8");
+				out.writeInt(name.length);
+				out.write(name);
+				out.writeLong(this.offsets[i]);
+				out.writeInt(this.lengths[i]);
+			}
+			written = true;
+		} finally {
+			out.close();
+			if (!written){
+				tmp.delete();
+			}
+		}
+		if (!tmp.renameTo(sidecar)){
+			sidecar.delete();
+			if (!tmp.renameTo(sidecar)){
+				tmp.delete();
+				throw new IOException("Could not write covering array index " + sidecar);
+			}
+		}
+	}
+
+	/***
+	 * <p>Loads a sidecar index, or returns null if it is missing, not an index, stale, or not as long as its row
+	 * count says (a row takes at least 16 bytes: name length, offset and line length).</p>
+	 */
+	static CoveringArrayIndex load(File sidecar, File csv) {
+		if (!sidecar.exists()){
+			return null;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(sidecar, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != csv.length()
+						|| buffer.getLong() != csv.lastModified()){
+					return null;
+				}
+				int numberOfProducts = buffer.getInt();
+				int count = buffer.getInt();
+				if (count < 0 || count > buffer.remaining() / 16){
+					return null;
+				}
+				Map<String, Integer> rows = new HashMap<String, Integer>(count * 2);
+				long[] offsets = new long[count];
+				int[] lengths = new int[count];
+				for (int i = 0; i < count; i++){
+					byte[] name = new byte[buffer.getInt()];
+					buffer.get(name);
+					rows.put(new String(name, "UTF-8"), i);
+					offsets[i] = buffer.getLong();
+					lengths[i] = buffer.getInt();
+					if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > csv.length()){
+						return null;
+					}
+				}
+				if (buffer.hasRemaining() || rows.size() != count){
+					return null;
+				}
+				return new CoveringArrayIndex(csv, numberOfProducts, rows, offsets, lengths);
+			} finally {
+				raf.close();
+			}
+		} catch (Exception e){
+			return null;
+		}
+	}
+
+	public File getFile() {
+		return csv;
+	}
+
+	public int getNumberOfProducts() {
+		return numberOfProducts;
+	}
+
+	public int getNumberOfRows() {
+		return offsets.length;
+	}
+
+	public boolean contains(String feature) {
+		return rows.containsKey(feature);
+	}
+
+	/***
+	 * <p>Reads only the rows of the given features (in file order, names missing from the array are skipped) into a
+	 * small in-memory {@link CoveringArrayStore}.</p>
+	 * @param features feature names
+	 * @return a store with just those rows
+	 * @throws IOException
+	 */
+	public CoveringArrayStore read(Collection<String> features) throws IOException {
+		List<Integer> selected = new ArrayList<Integer>();
+		for (String feature : new LinkedHashSet<String>(features)){
+			Integer row = this.rows.get(feature);
+			if (row != null){
+				selected.add(row);
+			}
+		}
+		// Ascending offsets: the reads walk the file forwards..
+		final long[] offsets = this.offsets;
+		Collections.sort(selected, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(offsets[a], offsets[b]);
+			}
+		});
+
+		int words = CoveringArrayStore.words(this.numberOfProducts);
+		String[] names = new String[selected.size()];
+		long[] bits = new long[selected.size() * words];
+		RandomAccessFile raf = new RandomAccessFile(this.csv, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			for (int i = 0; i < names.length; i++){
+				int row = selected.get(i);
+				ByteBuffer buffer = ByteBuffer.allocate(this.lengths[row]);
+				long position = this.offsets[row];
+				while (buffer.hasRemaining()){
+					int read = channel.read(buffer, position + buffer.position());
+					if (read < 0){
+						throw new IOException("Covering array changed while reading: " + this.csv);
+					}
+				}
+				String line = new String(buffer.array(), "UTF-8");
+				names[i] = line.substring(0, line.indexOf(';'));
+				CoveringArrayStore.parseRow(line, this.numberOfProducts, bits, i * words);
+			}
+		} finally {
+			raf.close();
+		}
+		return new CoveringArrayStore(this.csv, this.numberOfProducts, names, LongBuffer.wrap(bits));
+	}
+
+}
@@ -0,0 +1,444 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * <p>CoveringArrayStore is a covering array (a SPLCAT CSV, see {@link CoveringArraysUtils}) converted once into a
+ * column-packed binary file and memory-mapped: one bitset per feature across the products.</p>
+ * <p>The binary file "&lt;csv&gt;.bin" sits next to the CSV and is rebuilt when the CSV's size or modification time
+ * change; it is written to a temporary file and renamed, and a file too short for its header (an interrupted or
+ * foreign write) is rebuilt too. Products are read-only views over the mapped bits, so reading the array again (for
+ * every bug file) costs neither a CSV parse nor one string per feature and product.</p>
+ * <p>Stores are shared per canonical CSV path, one version each: a changed CSV replaces its older store, and
+ * {@link #evict} drops one (its mapping is released once no product view refers to it).</p>
+ * <p>Layout: magic, version, CSV size and mtime, products, features, words per feature; the feature names (length
+ * and UTF-8 bytes each); padding to 8 bytes; then features x words longs, bit p of a feature's words set when the
+ * feature is enabled ("X") in product p.</p>
+ */
+public final class CoveringArrayStore {
+
+	private static final int MAGIC = 0x43414253; // "CABS"
+	private static final int VERSION = 1;
+
+	private static final Map<String, Version> STORES = new ConcurrentHashMap<String, Version>();
+
+	private final File file;
+	private final int numberOfProducts;
+	private final int words;
+	private final String[] features;
+	private final String[] negatedFeatures;
+	private final Map<String, Integer> indexes;
+	private final LongBuffer bits;
+
+	CoveringArrayStore(File file, int numberOfProducts, String[] features, LongBuffer bits) {
+		this.file = file;
+		this.numberOfProducts = numberOfProducts;
+		this.words = CoveringArrayStore.words(numberOfProducts);
+		this.features = features;
+		this.bits = bits;
+		this.negatedFeatures = new String[features.length];
+		this.indexes = new HashMap<String, Integer>(features.length * 2);
+		for (int f = 0; f < features.length; f++){
+			this.negatedFeatures[f] = "!" + features[f];
+			if (!this.indexes.containsKey(features[f])){
+				this.indexes.put(features[f], f);
+			}
+		}
+	}
+
+	/***
+	 * <p>Parses the header of a mapped file, or returns null if the file is shorter than the header says (names or
+	 * features x words longs cut off).</p>
+	 */
+	private static CoveringArrayStore map(File file, MappedByteBuffer buffer) throws IOException {
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+			throw new IOException("Not a covering array store: " + file);
+		}
+		buffer.getLong(); // CSV size..
+		buffer.getLong(); // ..and modification time, checked by read()
+		int numberOfProducts = buffer.getInt();
+		int numberOfFeatures = buffer.getInt();
+		int words = buffer.getInt();
+		if (numberOfProducts < 0 || words != CoveringArrayStore.words(numberOfProducts) || numberOfFeatures < 0
+				|| numberOfFeatures > buffer.remaining() / 4){
+			return null;
+		}
+		String[] features = new String[numberOfFeatures];
+		for (int f = 0; f < features.length; f++){
+			int length = (buffer.remaining() < 4) ? -1 : buffer.getInt();
+			if (length < 0 || length > buffer.remaining()){
+				return null;
+			}
+			byte[] name = new byte[length];
+			buffer.get(name);
+			features[f] = new String(name, "UTF-8");
+		}
+		int start = CoveringArrayStore.align(buffer.position());
+		if (start > buffer.limit() || buffer.limit() - start < (long) numberOfFeatures * words * 8){
+			return null;
+		}
+		buffer.position(start);
+		return new CoveringArrayStore(file, numberOfProducts, features, buffer.slice().asLongBuffer());
+	}
+
+	public static void main(String[] args) throws IOException {
+		for (String csv : new String[] {"featureModel/busybox.dimacs.ca2.csv", "featureModel/linux.dimacs.ca1.csv"}){
+			long start = System.currentTimeMillis();
+			CoveringArrayStore store = CoveringArrayStore.forFile(new File(csv));
+			long loaded = System.currentTimeMillis() - start;
+			start = System.currentTimeMillis();
+			List<List<String>> products = new CoveringArraysUtils().getValidProducts(new File(csv));
+			System.out.println(csv + ": " + store.getNumberOfProducts() + " products, " + store.getNumberOfFeatures()
+					+ " features, store " + loaded + " ms, products view " + (System.currentTimeMillis() - start) + " ms ("
+					+ products.get(0).size() + " features in product 0)");
+		}
+	}
+
+	/***
+	 * <p>Returns the store of a covering array CSV, converting it on first use.</p>
+	 * @param csv SPLCAT covering array
+	 * @return the shared store
+	 * @throws IOException
+	 */
+	public static CoveringArrayStore forFile(File csv) throws IOException {
+		File canonical = csv.getCanonicalFile();
+		long length = canonical.length();
+		long modified = canonical.lastModified();
+		Version version = STORES.get(canonical.getPath());
+		if (version != null && version.length == length && version.modified == modified){
+			return version.store;
+		}
+
+		File bin = new File(canonical.getPath() + ".bin");
+		CoveringArrayStore store = CoveringArrayStore.read(bin, canonical);
+		if (store == null){
+			try {
+				CoveringArrayStore.convert(canonical, bin);
+			} catch (IOException e){
+				// Read-only model directory: convert into a temporary file instead..
+				bin = File.createTempFile(canonical.getName(), ".bin");
+				bin.deleteOnExit();
+				CoveringArrayStore.convert(canonical, bin);
+			}
+			store = CoveringArrayStore.read(bin, canonical);
+			if (store == null){
+				throw new IOException("Could not convert covering array " + csv);
+			}
+		}
+		STORES.put(canonical.getPath(), new Version(length, modified, store)); // replaces an older version..
+		return store;
+	}
+
+	/***
+	 * <p>Drops the shared store of a covering array, if any; the next {@link #forFile} maps the binary file again.</p>
+	 * @return whether a store was dropped
+	 */
+	public static boolean evict(File csv) throws IOException {
+		return STORES.remove(csv.getCanonicalPath()) != null;
+	}
+
+	/***
+	 * <p>Drops every shared store.</p>
+	 */
+	public static void clear() {
+		STORES.clear();
+	}
+
+	/***
+	 * <p>Converts a SPLCAT CSV ("Feature\Product;0;1;..." then "NAME;X;-;...") into the binary layout. Cells other
+	 * than "X", and cells missing at the end of a row, are disabled.</p>
+	 * @param csv covering array CSV
+	 * @param bin binary file to write, replaced once it is complete
+	 * @throws IOException
+	 */
+	public static void convert(File csv, File bin) throws IOException {
+		List<String> features = new ArrayList<String>();
+		List<long[]> rows = new ArrayList<long[]>();
+		int numberOfProducts = 0;
+
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(csv)));
+		try {
+			String line = br.readLine();
+			if (line != null){
+				numberOfProducts = line.split(";").length - 1;
+			}
+			int words = CoveringArrayStore.words(numberOfProducts);
+			while ((line = br.readLine()) != null) {
+				int end = line.indexOf(';');
+				if (end < 0){
+					continue;
+				}
+				long[] row = new long[words];
+				CoveringArrayStore.parseRow(line, numberOfProducts, row, 0);
+				features.add(line.substring(0, end));
+				rows.add(row);
+			}
+		} finally {
+			br.close();
+		}
+
+		int words = CoveringArrayStore.words(numberOfProducts);
+		// A temporary file of its own, so concurrent conversions never write the same file..
+		File tmp = File.createTempFile(bin.getName(), ".tmp", bin.getAbsoluteFile().getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		boolean written = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(csv.length());
+			out.writeLong(csv.lastModified());
+			out.writeInt(numberOfProducts);
+			out.writeInt(features.size());
+			out.writeInt(words);
+			for (String feature : features){
+				byte[] name = feature.getBytes("UTF-8");
+				out.writeInt(name.length);
+				out.write(name);
+			}
+			while (out.size() != CoveringArrayStore.align(out.size())){
+				out.writeByte(0);
+			}
+			for (long[] row : rows){
+				for (long word : row){
+					out.writeLong(word);
+				}
+			}
+			written = true;
+		} finally {
+			out.close();
+			if (!written){
+				tmp.delete();
+			}
+		}
+		if (!tmp.renameTo(bin)){
+			bin.delete();
+			if (!tmp.renameTo(bin)){
+				tmp.delete();
+				throw new IOException("Could not write covering array store " + bin);
+			}
+		}
+	}
+
+	/***
+	 * <p>Sets the bits of the products a CSV row ("NAME;X;-;...") enables into row[offset ..].</p>
+	 */
+	static void parseRow(String line, int numberOfProducts, long[] row, int offset) {
+		int product = 0;
+		for (int i = line.indexOf(';') + 1; i > 0 && i < line.length() && product < numberOfProducts; i++){
+			char c = line.charAt(i);
+			if (c == ';'){
+				product++;
+			} else if (c == 'X' && CoveringArrayStore.isCell(line, i)){
+				row[offset + (product >>> 6)] |= 1L << (product & 63);
+			}
+		}
+	}
+
+	/***
+	 * <p>Whether the "X" at <i>i</i> is a whole cell (trimmed like the old parser did), not part of a longer value.</p>
+	 */
+	private static boolean isCell(String line, int i) {
+		for (int j = i - 1; line.charAt(j) != ';'; j--){
+			if (!Character.isWhitespace(line.charAt(j))){
+				return false;
+			}
+		}
+		for (int j = i + 1; j < line.length() && line.charAt(j) != ';'; j++){
+			if (!Character.isWhitespace(line.charAt(j))){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/***
+	 * <p>Maps a binary file, or returns null if it is missing, not a store, older than the CSV or truncated.</p>
+	 */
+	static CoveringArrayStore read(File bin, File csv) throws IOException {
+		if (!bin.exists()){
+			return null;
+		}
+		RandomAccessFile raf = new RandomAccessFile(bin, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < 36 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+					|| buffer.getLong(8) != csv.length() || buffer.getLong(16) != csv.lastModified()){
+				return null;
+			}
+			return CoveringArrayStore.map(bin, buffer); // the mapping stays valid after the channel is closed..
+		} finally {
+			raf.close();
+		}
+	}
+
+	static int words(int numberOfProducts) {
+		return (numberOfProducts + 63) >>> 6;
+	}
+
+	private static int align(int position) {
+		return (position + 7) & ~7;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getNumberOfProducts() {
+		return numberOfProducts;
+	}
+
+	public int getNumberOfFeatures() {
+		return features.length;
+	}
+
+	public String getFeature(int feature) {
+		return features[feature];
+	}
+
+	/***
+	 * <p>Row of a feature, or -1 if the covering array has no such feature.</p>
+	 */
+	public int indexOf(String feature) {
+		Integer index = this.indexes.get(feature);
+		return (index == null) ? -1 : index;
+	}
+
+	public boolean isEnabled(int feature, int product) {
+		return (this.bits.get(feature * this.words + (product >>> 6)) & (1L << (product & 63))) != 0;
+	}
+
+	/***
+	 * <p>"NAME" if the feature is enabled in the product, else "!NAME" (shared strings, nothing is allocated).</p>
+	 */
+	public String getLiteral(int feature, int product) {
+		return this.isEnabled(feature, product) ? this.features[feature] : this.negatedFeatures[feature];
+	}
+
+	/***
+	 * <p>Read-only view of a product: every feature in row order, disabled ones prefixed by "!".</p>
+	 */
+	public List<String> getProduct(final int product) {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int feature) {
+				return CoveringArrayStore.this.getLiteral(feature, product);
+			}
+
+			@Override
+			public int size() {
+				return CoveringArrayStore.this.features.length;
+			}
+
+			@Override
+			public boolean contains(Object literal) {
+				if (!(literal instanceof String)){
+					return false;
+				}
+				String name = (String) literal;
+				boolean negated = name.startsWith("!");
+				int feature = CoveringArrayStore.this.indexOf(negated ? name.substring(1) : name);
+				return feature >= 0 && CoveringArrayStore.this.isEnabled(feature, product) != negated;
+			}
+		};
+	}
+
+	/***
+	 * <p>All products as views (the outer list is a new, modifiable list).</p>
+	 */
+	public List<List<String>> getProducts() {
+		List<List<String>> products = new ArrayList<List<String>>(this.numberOfProducts);
+		for (int product = 0; product < this.numberOfProducts; product++){
+			products.add(this.getProduct(product));
+		}
+		return products;
+	}
+
+	/***
+	 * <p>Projects the products onto some features and drops duplicates: each product becomes the sorted list of the
+	 * features' literals, kept the first time its projected bit row is seen.</p>
+	 * <p>Features are looked up once in the name index (names missing from the array are ignored), and duplicates are
+	 * found by hashing the projected bit rows, so the cost is about (features + products) x directives.</p>
+	 * @param directives feature names
+	 * @return the distinct projected products, in product order
+	 */
+	public List<List<String>> project(Collection<String> directives) {
+		int[] selected = new int[directives.size()];
+		int k = 0;
+		for (String directive : new HashSet<String>(directives)){
+			int feature = this.indexOf(directive);
+			if (feature >= 0){
+				selected[k++] = feature;
+			}
+		}
+
+		Set<BitSet> seen = new HashSet<BitSet>();
+		List<List<String>> samplings = new ArrayList<List<String>>();
+		for (int product = 0; product < this.numberOfProducts; product++){
+			BitSet row = new BitSet(k);
+			for (int i = 0; i < k; i++){
+				if (this.isEnabled(selected[i], product)){
+					row.set(i);
+				}
+			}
+			if (!seen.add(row)){
+				continue;
+			}
+			List<String> configuration = new ArrayList<String>(k);
+			for (int i = 0; i < k; i++){
+				configuration.add(row.get(i) ? this.features[selected[i]] : this.negatedFeatures[selected[i]]);
+			}
+			Collections.sort(configuration);
+			samplings.add(configuration);
+		}
+		return samplings;
+	}
+
+	/***
+	 * <p>Direct access to the packed bits of a feature: word <i>w</i> holds products 64*w .. 64*w+63.</p>
+	 */
+	public long getWord(int feature, int w) {
+		return this.bits.get(feature * this.words + w);
+	}
+
+	public int getWords() {
+		return words;
+	}
+
+	private static final class Version {
+
+		final long length;
+		final long modified;
+		final CoveringArrayStore store;
+
+		Version(long length, long modified, CoveringArrayStore store) {
+			this.length = length;
+			this.modified = modified;
+			this.store = store;
+		}
+
+	}
+
+}
@@ -0,0 +1,178 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * <p>DimacsSymbolTable is the immutable id &lt;-&gt; name mapping of the "c &lt;id&gt; &lt;name&gt;" lines of a DIMACS file.</p>
+ * <p>It is built once per model file ({@link #forFile}) and shared by {@link Sat4j}, {@link Sat4jSession} and the
+ * util checkers, instead of rescanning the file for every variable.</p>
+ */
+public final class DimacsSymbolTable {
+
+	private static final Map<String, DimacsSymbolTable> TABLES = new ConcurrentHashMap<String, DimacsSymbolTable>();
+
+	private final String file;
+	private final String[] names;
+	private final Map<String, Integer> ids;
+	private final int numberOfVariables;
+	private final int numberOfClauses;
+
+	private DimacsSymbolTable(String file, String[] names, int numberOfVariables, int numberOfClauses) {
+		this.file = file;
+		this.names = names;
+		this.numberOfVariables = numberOfVariables;
+		this.numberOfClauses = numberOfClauses;
+		this.ids = new HashMap<String, Integer>(names.length * 2);
+		for (int id = 1; id < names.length; id++){
+			if (names[id] != null && !this.ids.containsKey(names[id])){
+				this.ids.put(names[id], id);
+			}
+		}
+	}
+
+	/***
+	 * <p>Returns the symbol table of a DIMACS file, parsing it on first use.</p>
+	 * @param file DIMACS file path
+	 * @return the shared symbol table
+	 * @throws Exception
+	 */
+	public static DimacsSymbolTable forFile(String file) throws Exception {
+		String key = new File(file).getCanonicalPath();
+		DimacsSymbolTable table = TABLES.get(key);
+		if (table == null){
+			table = DimacsSymbolTable.parse(file);
+			DimacsSymbolTable previous = TABLES.putIfAbsent(key, table);
+			if (previous != null){
+				table = previous;
+			}
+		}
+		return table;
+	}
+
+	public static DimacsSymbolTable parse(String file) throws Exception {
+		List<String> names = new ArrayList<String>();
+		names.add(null); // DIMACS variables start at 1
+		int numberOfVariables = 0;
+		int numberOfClauses = 0;
+
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		String line = null;
+		while ((line = br.readLine()) != null) {
+			if (line.startsWith("p ")){
+				String[] parts = line.trim().split("\\s+");
+				numberOfVariables = Integer.parseInt(parts[2]);
+				numberOfClauses = Integer.parseInt(parts[3]);
+				break;
+			}
+			if (!line.startsWith("c ")){
+				continue;
+			}
+			String[] parts = line.trim().split("\\s+");
+			if (parts.length < 3){
+				continue;
+			}
+			int id;
+			try {
+				id = Integer.parseInt(parts[1]);
+			} catch (NumberFormatException e){
+				continue;
+			}
+			if (id <= 0){
+				continue;
+			}
+			while (names.size() <= id){
+				names.add(null);
+			}
+			names.set(id, parts[2]);
+		}
+		br.close();
+
+		while (names.size() <= numberOfVariables){
+			names.add(null);
+		}
+		return new DimacsSymbolTable(file, names.toArray(new String[names.size()]), Math.max(numberOfVariables, names.size() - 1), numberOfClauses);
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/***
+	 * <p>Number of variables declared in the "p cnf" line (or the largest named id if that is bigger).</p>
+	 */
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	public int getNumberOfClauses() {
+		return numberOfClauses;
+	}
+
+	/***
+	 * <p>Name of variable <i>id</i>, or null if it has none.</p>
+	 */
+	public String getName(int id) {
+		if (id <= 0 || id >= this.names.length){
+			return null;
+		}
+		return this.names[id];
+	}
+
+	/***
+	 * <p>Id of the variable called <i>name</i>, or 0 if the model has no such variable.</p>
+	 */
+	public int getId(String name) {
+		Integer id = this.ids.get(name);
+		return (id == null) ? 0 : id;
+	}
+
+	public boolean contains(String name) {
+		return this.ids.containsKey(name);
+	}
+
+	/***
+	 * <p>All named variables in id order.</p>
+	 */
+	public List<String> getNames() {
+		List<String> names = new ArrayList<String>(this.ids.size());
+		for (String name : this.names){
+			if (name != null){
+				names.add(name);
+			}
+		}
+		return Collections.unmodifiableList(names);
+	}
+
+	/***
+	 * <p>Translates a model (or any literal array) into feature names, negative literals prefixed by "!".
+	 * Unnamed variables are skipped.</p>
+	 */
+	public List<String> toConfiguration(int[] literals) {
+		List<String> configuration = new ArrayList<String>();
+		if (literals == null){
+			return configuration;
+		}
+		for (int literal : literals){
+			String name = this.getName(Math.abs(literal));
+			if (name == null){
+				continue;
+			}
+			if (literal < 0){
+				configuration.add("!" + name);
+			} else {
+				configuration.add(name);
+			}
+		}
+		return configuration;
+	}
+
+}
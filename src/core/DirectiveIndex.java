@@ -0,0 +1,707 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * <p>DirectiveIndex keeps the directives of C sources (see {@link SamplingAlgorithm#getDirectiveSet}) keyed by the
+ * SHA-1 of their content, so a source is lexed once however many algorithms, presence-condition options and runs ask
+ * for it. A source whose size and modification time did not change is not even read again.</p>
+ * <p>It also keeps the inverted index macro &rarr; files, and {@link #index} fills it for a whole source tree on a
+ * thread pool, reading the sources through memory-mapped buffers.</p>
+ * <p>The operands of its #include directives are kept per content hash too, for {@link IncludeClosure}.</p>
+ * <p>Everything is persisted in an append-only journal ({@link #getDefaultStore} by default): a "D" record per
+ * content hash (its directives), an "I" record per content hash with includes and an "F" record per source version
+ * (canonical path, size, mtime, hash). The journal is replayed on load; a torn last record is ignored and a corrupt
+ * journal is started over. It is rewritten without stale records once they are the majority. Appends and rewrites
+ * hold a lock on the journal, so several JVMs can share it. A journal that cannot be read or written only costs the
+ * persistence: the index then lives in memory, after one warning.</p>
+ * <p>All methods are thread-safe; one instance per journal is shared through {@link #forFile}.</p>
+ */
+public final class DirectiveIndex {
+
+	/** System property naming the default journal. */
+	public static final String STORE_PROPERTY = "directive.index";
+
+	private static final int MAGIC = 0x44495258; // "DIRX"
+	private static final int VERSION = 2;
+	private static final byte DIRECTIVES = 'D';
+	private static final byte INCLUDES = 'I';
+	private static final byte FILE = 'F';
+
+	private static final Map<String, DirectiveIndex> INSTANCES = new ConcurrentHashMap<String, DirectiveIndex>();
+
+	private final File store;
+	private final Map<String, String[]> directives = new ConcurrentHashMap<String, String[]>();
+	private final Map<String, String[]> includes = new ConcurrentHashMap<String, String[]>();
+	private final Map<String, FileEntry> files = new ConcurrentHashMap<String, FileEntry>();
+	private final Map<String, Set<String>> macros = new ConcurrentHashMap<String, Set<String>>();
+	private FileOutputStream output = null;
+	private DataOutputStream journal = null;
+	private int records = 0;
+	private boolean persistent = true;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong contentHits = new AtomicLong();
+	private final AtomicLong parsed = new AtomicLong();
+
+	private DirectiveIndex(File store) {
+		this.store = store;
+	}
+
+	public static void main(String[] args) throws Exception {
+		File root = new File(args.length > 0 ? args[0] : "bugs");
+		DirectiveIndex index = DirectiveIndex.getDefault();
+		for (int run = 1; run <= 2; run++){
+			long start = System.currentTimeMillis();
+			int sources = index.index(root, Runtime.getRuntime().availableProcessors());
+			System.out.println("Run " + run + ": " + sources + " sources in " + (System.currentTimeMillis() - start) + " ms, "
+					+ index);
+		}
+		System.out.println("ENABLE_FEATURE_TAR_CREATE: " + index.getFiles("ENABLE_FEATURE_TAR_CREATE"));
+	}
+
+	/***
+	 * <p>The index persisted in {@link #getDefaultStore}.</p>
+	 */
+	public static DirectiveIndex getDefault() throws IOException {
+		return DirectiveIndex.forFile(DirectiveIndex.getDefaultStore());
+	}
+
+	/***
+	 * <p>The default journal: the file named by the {@link #STORE_PROPERTY} system property, else
+	 * ~/.sampling/directives.idx (entries are keyed by canonical path and content, so checkouts can share it).</p>
+	 */
+	public static File getDefaultStore() {
+		String store = System.getProperty(STORE_PROPERTY);
+		if (store != null && !store.isEmpty()){
+			return new File(store);
+		}
+		return new File(new File(System.getProperty("user.home"), ".sampling"), "directives.idx");
+	}
+
+	/***
+	 * <p>Returns the shared index of a journal, loading it on first use.</p>
+	 * @param store journal file (created on the first new entry)
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static DirectiveIndex forFile(File store) throws IOException {
+		String key = store.getCanonicalPath();
+		DirectiveIndex index = INSTANCES.get(key);
+		if (index == null){
+			synchronized (INSTANCES){
+				index = INSTANCES.get(key);
+				if (index == null){
+					index = new DirectiveIndex(store.getCanonicalFile());
+					index.load();
+					INSTANCES.put(key, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	public File getStore() {
+		return store;
+	}
+
+	/***
+	 * <p>Whether new entries still reach the journal (false once it could not be written).</p>
+	 */
+	public boolean isPersistent() {
+		return persistent;
+	}
+
+	/***
+	 * <p>The directives of a source: from memory if its size and modification time are the ones recorded, else by
+	 * content hash, else lexed (and recorded).</p>
+	 * @param source C source or header
+	 * @return the directives in order of first use (a new set each time)
+	 * @throws IOException
+	 */
+	public LinkedHashSet<String> getDirectives(File source) throws IOException {
+		File file = source.getCanonicalFile();
+		String path = file.getPath();
+		long size = file.length();
+		long mtime = file.lastModified();
+		FileEntry entry = this.files.get(path);
+		if (entry != null && entry.size == size && entry.mtime == mtime){
+			String[] names = this.directives.get(entry.hash);
+			if (names != null){
+				this.hits.incrementAndGet();
+				return new LinkedHashSet<String>(Arrays.asList(names));
+			}
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		String hash;
+		String[] names;
+		String[] included = null;
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			hash = DirectiveIndex.sha1(content.duplicate());
+			names = this.directives.get(hash);
+			if (names == null){
+				CharBuffer chars = Charset.defaultCharset().decode(content);
+				DirectiveLexer lexer = new DirectiveLexer(chars.array(), chars.limit());
+				List<String> operands = new ArrayList<String>();
+				names = DirectiveIndex.parse(lexer, file.getName(), operands).toArray(new String[0]);
+				included = operands.toArray(new String[0]);
+				this.parsed.incrementAndGet();
+			} else {
+				this.contentHits.incrementAndGet();
+			}
+		} finally {
+			raf.close();
+		}
+		this.record(path, new FileEntry(size, mtime, hash), names, included);
+		return new LinkedHashSet<String>(Arrays.asList(names));
+	}
+
+	/***
+	 * <p>The SHA-1 of a source's content, from memory if its size and modification time are the ones recorded (the
+	 * source is indexed otherwise).</p>
+	 * @param source C source or header
+	 * @return hexadecimal hash
+	 * @throws IOException
+	 */
+	public String getHash(File source) throws IOException {
+		File file = source.getCanonicalFile();
+		FileEntry entry = this.files.get(file.getPath());
+		if (entry == null || entry.size != file.length() || entry.mtime != file.lastModified()){
+			this.getDirectives(file);
+			entry = this.files.get(file.getPath());
+		}
+		return entry.hash;
+	}
+
+	/***
+	 * <p>The operands of the #include directives of a source, in order and as written: "name.h" with its quotes,
+	 * &lt;dir/name.h&gt; with its brackets. Includes through a macro are left out.</p>
+	 * @param source C source or header
+	 * @return the operands (an empty array if none)
+	 * @throws IOException
+	 */
+	public String[] getIncludes(File source) throws IOException {
+		String[] operands = this.includes.get(this.getHash(source));
+		return (operands == null) ? new String[0] : operands.clone();
+	}
+
+	/***
+	 * <p>The macros tested by the conditionals of a lexed source; see {@link SamplingAlgorithm#getDirectiveSet}.</p>
+	 */
+	static LinkedHashSet<String> parse(DirectiveLexer lexer, String fileName) {
+		return DirectiveIndex.parse(lexer, fileName, null);
+	}
+
+	/***
+	 * <p>As {@link #parse(DirectiveLexer, String)}, also adding the #include operands to a list (if not null).</p>
+	 */
+	static LinkedHashSet<String> parse(DirectiveLexer lexer, String fileName, List<String> includes) {
+		LinkedHashSet<String> directives = new LinkedHashSet<String>();
+		DirectiveLexer.Kind kind;
+		while ((kind = lexer.nextDirective()) != null) {
+			switch (kind) {
+			case IF: case IFDEF: case IFNDEF: case ELIF: case ELIFDEF: case ELIFNDEF:
+				while (lexer.nextToken() != DirectiveLexer.END) {
+					// Identifiers, and "64BIT", the one pp-number the Linux model uses as a feature..
+					if ((lexer.getTokenType() == DirectiveLexer.IDENTIFIER && !lexer.isToken("defined"))
+							|| (lexer.getTokenType() == DirectiveLexer.NUMBER && lexer.isToken("64BIT"))){
+						directives.add(lexer.getToken());
+					}
+				}
+				break;
+			case DEFINE:
+				if (lexer.nextToken() == DirectiveLexer.IDENTIFIER){
+					String name = lexer.getToken();
+					int next = lexer.nextToken();
+					boolean functionLike = next == DirectiveLexer.PUNCTUATOR && lexer.isToken("(") && !lexer.isSpaceBefore();
+					if (next != DirectiveLexer.END && !functionLike){
+						directives.remove(name);
+					}
+				}
+				break;
+			case INCLUDE:
+				if (includes != null){
+					int type = lexer.nextToken();
+					if (type == DirectiveLexer.HEADER || type == DirectiveLexer.STRING){
+						includes.add(lexer.getToken());
+					}
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		directives.remove(fileName.toUpperCase() + "_H");
+		return directives;
+	}
+
+	/***
+	 * <p>Indexes every C source and header (".c", ".h") under a directory on a pool of threads; sources already
+	 * indexed and unchanged cost a stat each.</p>
+	 * @param root source tree
+	 * @param threads number of threads
+	 * @return number of sources
+	 * @throws Exception
+	 */
+	public int index(File root, int threads) throws Exception {
+		List<File> sources = new ArrayList<File>();
+		DirectiveIndex.collect(root, sources);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			int chunk = Math.max(1, sources.size() / (Math.max(1, threads) * 8));
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int first = 0; first < sources.size(); first += chunk){
+				final List<File> part = sources.subList(first, Math.min(sources.size(), first + chunk));
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (File source : part){
+							DirectiveIndex.this.getDirectives(source);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures){
+				try {
+					future.get();
+				} catch (ExecutionException e){
+					if (e.getCause() instanceof Exception){
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return sources.size();
+	}
+
+	private static void collect(File directory, List<File> sources) {
+		File[] children = directory.listFiles();
+		if (children == null){
+			return;
+		}
+		Arrays.sort(children);
+		for (File child : children){
+			String name = child.getName();
+			if (child.isDirectory()){
+				DirectiveIndex.collect(child, sources);
+			} else if (name.endsWith(".c") || name.endsWith(".h")){
+				sources.add(child);
+			}
+		}
+	}
+
+	/***
+	 * <p>The indexed sources (canonical paths) whose conditionals test a macro.</p>
+	 */
+	public Set<String> getFiles(String macro) {
+		Set<String> paths = this.macros.get(macro);
+		return (paths == null) ? Collections.<String>emptySet() : Collections.unmodifiableSet(new TreeSet<String>(paths));
+	}
+
+	/***
+	 * <p>The indexed sources whose conditionals test a macro, restricted to the ones under a directory.</p>
+	 */
+	public Set<String> getFiles(String macro, File root) throws IOException {
+		String prefix = root.getCanonicalPath() + File.separator;
+		TreeSet<String> paths = new TreeSet<String>();
+		for (String path : this.getFiles(macro)){
+			if (path.startsWith(prefix)){
+				paths.add(path);
+			}
+		}
+		return paths;
+	}
+
+	/***
+	 * <p>Every macro tested by some indexed source.</p>
+	 */
+	public Set<String> getMacros() {
+		TreeSet<String> names = new TreeSet<String>();
+		for (Map.Entry<String, Set<String>> macro : this.macros.entrySet()){
+			if (!macro.getValue().isEmpty()){
+				names.add(macro.getKey());
+			}
+		}
+		return names;
+	}
+
+	public int getNumberOfFiles() {
+		return files.size();
+	}
+
+	/***
+	 * <p>Lookups answered from a recorded size and modification time.</p>
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/***
+	 * <p>Lookups of changed or new paths whose content was already known.</p>
+	 */
+	public long getContentHits() {
+		return contentHits.get();
+	}
+
+	/***
+	 * <p>Sources lexed.</p>
+	 */
+	public long getParsed() {
+		return parsed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "files " + this.files.size() + ", contents " + this.directives.size() + ", macros " + this.macros.size()
+				+ ", hits " + this.hits.get() + ", content hits " + this.contentHits.get() + ", parsed " + this.parsed.get();
+	}
+
+	/***
+	 * <p>Records a source version (and its directives and includes if the hash is new), in memory and in the
+	 * journal.</p>
+	 */
+	private synchronized void record(String path, FileEntry entry, String[] names, String[] included) throws IOException {
+		boolean newContent = !this.directives.containsKey(entry.hash);
+		if (newContent){
+			this.directives.put(entry.hash, names);
+			if (included != null && included.length > 0){
+				this.includes.put(entry.hash, included);
+			}
+		}
+		this.put(path, entry);
+
+		if (this.persistent){
+			try {
+				this.append(path, entry, newContent ? names : null, newContent ? this.includes.get(entry.hash) : null);
+			} catch (IOException e){
+				this.stopPersisting("cannot be written", e);
+			}
+		}
+	}
+
+	/***
+	 * <p>Appends the records of a source version to the journal, holding its lock.</p>
+	 * @param names directives of a new content, or null
+	 * @param included includes of a new content, or null
+	 */
+	private void append(String path, FileEntry entry, String[] names, String[] included) throws IOException {
+		if (this.journal == null){
+			File parent = this.store.getParentFile();
+			if (parent != null){
+				parent.mkdirs();
+			}
+			this.output = new FileOutputStream(this.store, true);
+			this.journal = new DataOutputStream(new BufferedOutputStream(this.output));
+		}
+		FileLock lock = this.output.getChannel().lock();
+		try {
+			// Checked under the lock, so two JVMs creating the journal write one header..
+			if (this.output.getChannel().size() == 0){
+				this.journal.writeInt(MAGIC);
+				this.journal.writeInt(VERSION);
+			}
+			if (names != null){
+				DirectiveIndex.writeDirectives(this.journal, entry.hash, names);
+				this.records++;
+			}
+			if (included != null){
+				DirectiveIndex.writeIncludes(this.journal, entry.hash, included);
+				this.records++;
+			}
+			DirectiveIndex.writeFile(this.journal, path, entry);
+			this.records++;
+			this.journal.flush();
+		} finally {
+			lock.release();
+		}
+	}
+
+	/***
+	 * <p>Keeps the index in memory only from now on, with one warning.</p>
+	 */
+	private void stopPersisting(String reason, Exception e) {
+		this.persistent = false;
+		System.err.println("Directive index " + this.store + " " + reason + " (" + e + "), keeping it in memory only");
+		if (this.journal != null){
+			try {
+				this.journal.close();
+			} catch (IOException ignored){
+				// Nothing more to lose..
+			}
+			this.journal = null;
+			this.output = null;
+		}
+	}
+
+	/***
+	 * <p>Sets the entry of a path and moves the path in the inverted index.</p>
+	 */
+	private void put(String path, FileEntry entry) {
+		FileEntry previous = this.files.put(path, entry);
+		if (previous != null){
+			if (previous.hash.equals(entry.hash)){
+				return;
+			}
+			for (String macro : this.directives.get(previous.hash)){
+				Set<String> paths = this.macros.get(macro);
+				if (paths != null){
+					paths.remove(path);
+				}
+			}
+		}
+		for (String macro : this.directives.get(entry.hash)){
+			Set<String> paths = this.macros.get(macro);
+			if (paths == null){
+				paths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+				this.macros.put(macro, paths);
+			}
+			paths.add(path);
+		}
+	}
+
+	/***
+	 * <p>Replays the journal; a torn last record (interrupted run) is ignored. A journal that is not one, of another
+	 * version or corrupt (a garbage count, say) is started over.</p>
+	 */
+	private void load() {
+		if (!this.store.exists()){
+			return;
+		}
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(this.store.toPath());
+		} catch (IOException e){
+			this.stopPersisting("cannot be read", e);
+			return;
+		}
+		ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+		DataInputStream in = new DataInputStream(buffer);
+		long valid = 0;
+		try {
+			if (bytes.length < 8 || in.readInt() != MAGIC || in.readInt() != VERSION){
+				System.err.println("Directive index " + this.store + " is not readable, starting over");
+			} else {
+				valid = bytes.length - buffer.available();
+				valid = this.replay(bytes, buffer, in, valid);
+			}
+		} catch (Exception e){
+			valid = this.clear(e);
+		} catch (OutOfMemoryError e){
+			valid = this.clear(e);
+		}
+		if (valid < bytes.length || this.records > 2 * (this.files.size() + this.directives.size() + this.includes.size())){
+			try {
+				this.compact();
+			} catch (IOException e){
+				this.stopPersisting("cannot be rewritten", e);
+			}
+		}
+	}
+
+	/***
+	 * <p>Replays the records after the header.</p>
+	 * @return the length of the journal up to the last whole record
+	 */
+	private long replay(byte[] bytes, ByteArrayInputStream buffer, DataInputStream in, long valid) throws IOException {
+		try {
+			while (buffer.available() > 0) {
+				byte type = in.readByte();
+				if (type == DIRECTIVES){
+					String hash = in.readUTF();
+					String[] names = new String[DirectiveIndex.readCount(in, buffer)];
+					for (int i = 0; i < names.length; i++){
+						names[i] = in.readUTF();
+					}
+					this.directives.put(hash, names);
+				} else if (type == INCLUDES){
+					String hash = in.readUTF();
+					String[] operands = new String[DirectiveIndex.readCount(in, buffer)];
+					for (int i = 0; i < operands.length; i++){
+						operands[i] = in.readUTF();
+					}
+					this.includes.put(hash, operands);
+				} else if (type == FILE){
+					String path = in.readUTF();
+					long size = in.readLong();
+					long mtime = in.readLong();
+					FileEntry entry = new FileEntry(size, mtime, in.readUTF());
+					if (this.directives.containsKey(entry.hash)){
+						this.put(path, entry);
+					}
+				} else {
+					throw new IOException("Unknown record type " + type);
+				}
+				this.records++;
+				valid = bytes.length - buffer.available();
+			}
+		} catch (EOFException e){
+			// Torn last record..
+		}
+		return valid;
+	}
+
+	/***
+	 * <p>A record's element count, which cannot exceed the bytes left (every element takes at least one).</p>
+	 */
+	private static int readCount(DataInputStream in, ByteArrayInputStream buffer) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > buffer.available()){
+			throw new IOException("Bad count " + count);
+		}
+		return count;
+	}
+
+	/***
+	 * <p>Forgets a corrupt journal's records.</p>
+	 * @return 0, the length of the journal kept
+	 */
+	private long clear(Throwable e) {
+		System.err.println("Directive index " + this.store + " is corrupt (" + e + "), starting over");
+		this.directives.clear();
+		this.includes.clear();
+		this.files.clear();
+		this.macros.clear();
+		this.records = 0;
+		return 0;
+	}
+
+	/***
+	 * <p>Rewrites the journal with just the live records.</p>
+	 */
+	private void compact() throws IOException {
+		File parent = this.store.getParentFile();
+		if (parent != null){
+			parent.mkdirs();
+		}
+		// Locks the journal against appends from other JVMs while it is replaced..
+		RandomAccessFile locked = new RandomAccessFile(this.store, "rw");
+		try {
+			locked.getChannel().lock();
+			this.rewrite();
+		} finally {
+			locked.close();
+		}
+	}
+
+	private void rewrite() throws IOException {
+		File tmp = new File(this.store.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for (Map.Entry<String, String[]> content : this.directives.entrySet()){
+				DirectiveIndex.writeDirectives(out, content.getKey(), content.getValue());
+			}
+			for (Map.Entry<String, String[]> content : this.includes.entrySet()){
+				DirectiveIndex.writeIncludes(out, content.getKey(), content.getValue());
+			}
+			for (Map.Entry<String, FileEntry> file : this.files.entrySet()){
+				DirectiveIndex.writeFile(out, file.getKey(), file.getValue());
+			}
+		} finally {
+			out.close();
+		}
+		this.records = this.directives.size() + this.includes.size() + this.files.size();
+		if (!tmp.renameTo(this.store)){
+			this.store.delete();
+			if (!tmp.renameTo(this.store)){
+				throw new IOException("Could not write directive index " + this.store);
+			}
+		}
+	}
+
+	private static void writeDirectives(DataOutputStream out, String hash, String[] names) throws IOException {
+		out.writeByte(DIRECTIVES);
+		out.writeUTF(hash);
+		out.writeInt(names.length);
+		for (String name : names){
+			out.writeUTF(name);
+		}
+	}
+
+	private static void writeIncludes(DataOutputStream out, String hash, String[] operands) throws IOException {
+		out.writeByte(INCLUDES);
+		out.writeUTF(hash);
+		out.writeInt(operands.length);
+		for (String operand : operands){
+			out.writeUTF(operand);
+		}
+	}
+
+	private static void writeFile(DataOutputStream out, String path, FileEntry entry) throws IOException {
+		out.writeByte(FILE);
+		out.writeUTF(path);
+		out.writeLong(entry.size);
+		out.writeLong(entry.mtime);
+		out.writeUTF(entry.hash);
+	}
+
+	private static String sha1(ByteBuffer content) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(content);
+			byte[] hash = digest.digest();
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash){
+				hex.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e){
+			throw new IOException(e);
+		}
+	}
+
+	private static final class FileEntry {
+
+		final long size;
+		final long mtime;
+		final String hash;
+
+		FileEntry(long size, long mtime, String hash) {
+			this.size = size;
+			this.mtime = mtime;
+			this.hash = hash;
+		}
+
+	}
+
+}
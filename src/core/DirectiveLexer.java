@@ -0,0 +1,411 @@
+package core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/***
+ * <p>DirectiveLexer walks the preprocessor directives of a C source held in one char buffer, in a single pass and
+ * without building a string per line.</p>
+ * <p>Between directives it skips code, block and line comments, string and character literals, so a "#if" in a
+ * comment or a "/*" in a string is never taken for real. Backslash-newline continuations join lines and block
+ * comments count as white space, also inside a directive, as in translation phases 2 and 3.</p>
+ * <p>Usage: {@link #nextDirective()} moves to the next directive and returns its kind, then {@link #nextToken()}
+ * returns its tokens up to {@link #END}. The text of the current token is only built on {@link #getToken()}.</p>
+ */
+public final class DirectiveLexer {
+
+	/** Kinds of directive. */
+	public enum Kind {
+		IF, IFDEF, IFNDEF, ELIF, ELIFDEF, ELIFNDEF, ELSE, ENDIF, DEFINE, UNDEF, INCLUDE, OTHER
+	}
+
+	/** Token types. */
+	public static final int END = 0;
+	public static final int IDENTIFIER = 1;
+	public static final int NUMBER = 2;
+	public static final int STRING = 3;
+	public static final int HEADER = 4;
+	public static final int PUNCTUATOR = 5;
+
+	private static final String[] KEYWORDS = {"if", "ifdef", "ifndef", "elif", "else", "endif", "define", "undef",
+			"include", "include_next", "elifdef", "elifndef"};
+	private static final Kind[] KINDS = {Kind.IF, Kind.IFDEF, Kind.IFNDEF, Kind.ELIF, Kind.ELSE, Kind.ENDIF, Kind.DEFINE,
+			Kind.UNDEF, Kind.INCLUDE, Kind.INCLUDE, Kind.ELIFDEF, Kind.ELIFNDEF};
+
+	private final char[] buffer;
+	private final int length;
+	private int position = 0;
+	private int line = 1;
+
+	private Kind kind = null;
+	private int directiveLine = 0;
+	private boolean inDirective = false;
+
+	private final StringBuilder token = new StringBuilder(64);
+	private int tokenType = END;
+	private int tokenIndex = 0;
+	private boolean spaceBefore = false;
+
+	public DirectiveLexer(char[] buffer, int length) {
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	public DirectiveLexer(CharSequence source) {
+		this(source.toString().toCharArray(), source.length());
+	}
+
+	public static void main(String[] args) throws Exception {
+		DirectiveLexer lexer = DirectiveLexer.forFile(new File(args.length > 0 ? args[0] : "bugs/busybox/archival/tar.c"));
+		Kind kind;
+		while ((kind = lexer.nextDirective()) != null) {
+			StringBuilder tokens = new StringBuilder();
+			while (lexer.nextToken() != END) {
+				tokens.append(' ').append(lexer.getToken());
+			}
+			System.out.println(lexer.getLine() + ": " + kind + tokens);
+		}
+	}
+
+	/***
+	 * <p>Reads a whole file (platform charset, as the readers of this project) into one buffer.</p>
+	 * @param file C source or header
+	 * @return a lexer at the start of the file
+	 * @throws IOException
+	 */
+	public static DirectiveLexer forFile(File file) throws IOException {
+		byte[] bytes = new byte[(int) Math.min(Integer.MAX_VALUE - 8, file.length() + 1)];
+		int length = 0;
+		InputStream in = new FileInputStream(file);
+		try {
+			int read;
+			while ((read = in.read(bytes, length, bytes.length - length)) != -1) {
+				length += read;
+				if (length == bytes.length){
+					bytes = Arrays.copyOf(bytes, bytes.length * 2);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		CharBuffer chars = Charset.defaultCharset().decode(ByteBuffer.wrap(bytes, 0, length));
+		return new DirectiveLexer(chars.array(), chars.limit());
+	}
+
+	/***
+	 * <p>Moves to the next directive (skipping what is left of the current one).</p>
+	 * @return its kind, or null at the end of the source
+	 */
+	public Kind nextDirective() {
+		while (this.inDirective) {
+			this.nextToken();
+		}
+		char[] buffer = this.buffer;
+		int length = this.length;
+		int p = this.position;
+		boolean lineStart = (p == 0) || buffer[p - 1] == '\n';
+		while (p < length) {
+			char c = buffer[p];
+			if (!lineStart && c != '\n' && c != '/' && c != '"' && c != '\''){
+				// Past the start of a line only newlines, comments and literals matter..
+				p++;
+				while (p < length && (c = buffer[p]) != '\n' && c != '/' && c != '"' && c != '\'') {
+					p++;
+				}
+			} else if (c > '/'){
+				// Letters, digits, most operators and '\\' (a continuation is seen from its newline)..
+				p++;
+				lineStart = false;
+			} else if (c == '\n'){
+				this.line++;
+				if (!(p > 0 && buffer[p - 1] == '\\') && !(p > 1 && buffer[p - 1] == '\r' && buffer[p - 2] == '\\')){
+					lineStart = true;
+				}
+				p++;
+			} else if (c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == '\u000b'){
+				p++;
+			} else if (c == '/'){
+				this.position = p;
+				if (!this.skipComment()){
+					this.position++;
+					lineStart = false;
+				}
+				p = this.position;
+			} else if (c == '#' && lineStart){
+				this.position = p + 1;
+				this.directiveLine = this.line;
+				this.inDirective = true;
+				this.tokenIndex = 0;
+				this.kind = (this.nextToken() == IDENTIFIER) ? this.keyword() : Kind.OTHER;
+				return this.kind;
+			} else if (c == '"' || c == '\''){
+				this.position = p;
+				this.skipLiteral(c);
+				p = this.position;
+				lineStart = false;
+			} else {
+				p++;
+				lineStart = false;
+			}
+		}
+		this.position = p;
+		this.kind = null;
+		return null;
+	}
+
+	/***
+	 * <p>Next token of the current directive.</p>
+	 * @return {@link #IDENTIFIER}, {@link #NUMBER}, {@link #STRING} (also character constants), {@link #HEADER}
+	 * ("&lt;..&gt;" after #include), {@link #PUNCTUATOR}, or {@link #END} at the end of the directive
+	 */
+	public int nextToken() {
+		this.token.setLength(0);
+		this.spaceBefore = false;
+		if (!this.inDirective){
+			return this.tokenType = END;
+		}
+		while (this.position < this.length) {
+			char c = this.buffer[this.position];
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == '\u000b'){
+				this.position++;
+				this.spaceBefore = true;
+			} else if (this.skipContinuation()){
+				continue;
+			} else if (c == '/' && this.peek(1) == '*'){
+				this.skipComment();
+				this.spaceBefore = true;
+			} else {
+				break;
+			}
+		}
+		if (this.position >= this.length || this.buffer[this.position] == '\n'
+				|| (this.buffer[this.position] == '/' && this.peek(1) == '/')){
+			// A line comment ends the directive; the newline itself is left to nextDirective..
+			if (this.position < this.length && this.buffer[this.position] == '/'){
+				this.skipComment();
+			}
+			this.inDirective = false;
+			return this.tokenType = END;
+		}
+		this.tokenIndex++;
+
+		char c = this.buffer[this.position];
+		if (DirectiveLexer.isIdentifierStart(c)){
+			this.take();
+			while (this.position < this.length && (DirectiveLexer.isIdentifierPart(this.buffer[this.position]) || this.skipContinuation())) {
+				if (this.position < this.length && DirectiveLexer.isIdentifierPart(this.buffer[this.position])){
+					this.take();
+				}
+			}
+			return this.tokenType = IDENTIFIER;
+		}
+		if ((c >= '0' && c <= '9') || (c == '.' && this.peek(1) >= '0' && this.peek(1) <= '9')){
+			// pp-number: digits, letters, '.', '_' and signed exponents..
+			this.take();
+			while (this.position < this.length) {
+				char d = this.buffer[this.position];
+				if ((d == '+' || d == '-') && this.token.length() > 0){
+					char e = Character.toLowerCase(this.token.charAt(this.token.length() - 1));
+					if (e != 'e' && e != 'p'){
+						break;
+					}
+					this.take();
+				} else if (DirectiveLexer.isIdentifierPart(d) || d == '.'){
+					this.take();
+				} else if (!this.skipContinuation()){
+					break;
+				}
+			}
+			return this.tokenType = NUMBER;
+		}
+		if (c == '"' || c == '\''){
+			int start = this.position;
+			this.skipLiteral(c);
+			this.token.append(this.buffer, start, this.position - start);
+			return this.tokenType = STRING;
+		}
+		if (c == '<' && this.kind == Kind.INCLUDE && this.tokenIndex == 2){
+			int start = this.position;
+			while (this.position < this.length && this.buffer[this.position] != '>' && this.buffer[this.position] != '\n') {
+				this.position++;
+			}
+			if (this.position < this.length && this.buffer[this.position] == '>'){
+				this.position++;
+			}
+			this.token.append(this.buffer, start, this.position - start);
+			return this.tokenType = HEADER;
+		}
+		this.take();
+		char d = this.peek(0);
+		if ((d == c && (c == '&' || c == '|' || c == '<' || c == '>' || c == '#'))
+				|| (d == '=' && (c == '=' || c == '!' || c == '<' || c == '>'))){
+			this.take();
+		}
+		return this.tokenType = PUNCTUATOR;
+	}
+
+	/***
+	 * <p>The text of the current token (built on each call).</p>
+	 */
+	public String getToken() {
+		return this.token.toString();
+	}
+
+	/***
+	 * <p>Compares the current token without building its text.</p>
+	 */
+	public boolean isToken(String text) {
+		if (this.token.length() != text.length()){
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++){
+			if (this.token.charAt(i) != text.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getTokenType() {
+		return tokenType;
+	}
+
+	/***
+	 * <p>Whether white space (or a comment) came before the current token, e.g. to tell "#define F(x)" (function-like)
+	 * from "#define F (x)".</p>
+	 */
+	public boolean isSpaceBefore() {
+		return spaceBefore;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/***
+	 * <p>Line (1-based) of the '#' of the current directive.</p>
+	 */
+	public int getLine() {
+		return directiveLine;
+	}
+
+	/***
+	 * <p>Line (1-based) the lexer is at, the last line once {@link #nextDirective()} returned null.</p>
+	 */
+	public int getCurrentLine() {
+		return line;
+	}
+
+	private Kind keyword() {
+		for (int i = 0; i < KEYWORDS.length; i++){
+			if (this.isToken(KEYWORDS[i])){
+				return KINDS[i];
+			}
+		}
+		return Kind.OTHER;
+	}
+
+	private void take() {
+		this.token.append(this.buffer[this.position++]);
+	}
+
+	private char peek(int offset) {
+		int i = this.position + offset;
+		return (i < this.length) ? this.buffer[i] : '\0';
+	}
+
+	/***
+	 * <p>Skips a backslash-newline (also "\r\n").</p>
+	 */
+	private boolean skipContinuation() {
+		if (this.position < this.length && this.buffer[this.position] == '\\'){
+			if (this.peek(1) == '\n'){
+				this.position += 2;
+				this.line++;
+				return true;
+			}
+			if (this.peek(1) == '\r' && this.peek(2) == '\n'){
+				this.position += 3;
+				this.line++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/***
+	 * <p>Skips a block comment, or a line comment up to (not including) its newline.</p>
+	 */
+	private boolean skipComment() {
+		if (this.position >= this.length || this.buffer[this.position] != '/'){
+			return false;
+		}
+		char next = this.peek(1);
+		if (next == '*'){
+			char[] buffer = this.buffer;
+			int p = this.position + 2;
+			int lines = 0;
+			while (p < this.length) {
+				char c = buffer[p++];
+				if (c == '\n'){
+					lines++;
+				} else if (c == '*' && p < this.length && buffer[p] == '/'){
+					p++;
+					break;
+				}
+			}
+			this.position = Math.min(p, this.length);
+			this.line += lines;
+			return true;
+		}
+		if (next == '/'){
+			while (this.position < this.length && this.buffer[this.position] != '\n') {
+				if (!this.skipContinuation()){
+					this.position++;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/***
+	 * <p>Skips a string or character literal; an unterminated one stops at the end of the line.</p>
+	 */
+	private void skipLiteral(char quote) {
+		this.position++;
+		while (this.position < this.length) {
+			char c = this.buffer[this.position];
+			if (c == quote){
+				this.position++;
+				return;
+			}
+			if (c == '\n'){
+				return;
+			}
+			if (c == '\\'){
+				if (!this.skipContinuation()){
+					this.position += 2;
+				}
+			} else {
+				this.position++;
+			}
+		}
+		this.position = Math.min(this.position, this.length);
+	}
+
+	private static boolean isIdentifierStart(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return DirectiveLexer.isIdentifierStart(c) || (c >= '0' && c <= '9');
+	}
+
+}
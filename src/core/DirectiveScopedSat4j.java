@@ -0,0 +1,269 @@
+package core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * <p>DirectiveScopedSat4j answers one-enabled / one-disabled for the directives of a single source file instead of
+ * for every variable of the feature model.</p>
+ * <p>Only the file's own directives are queried (a few dozen solver queries instead of one per model variable, 62k
+ * on Linux), each model is projected onto the directives, and two caches keep the work across files: the model
+ * found for every feature (so overlapping directive sets solve each feature once) and the projected samples per
+ * directive set (so repeated directive sets are not solved at all).</p>
+ * <p>A model is kept as the bitset of its enabled variables (a bit per variable, about 8 KB on Linux instead of
+ * 250 KB as an int[]), and both caches keep the {@link #MAX_CACHED} most recently used entries per polarity. A
+ * model cut off by a {@link SolverBudget} is returned but not cached, nor is a directive set holding one.</p>
+ * <p>Every call takes its settings (strategy, budget, solver, backbone, warm start, model reuse) from the calling
+ * {@link Sat4j} and adds the stats of its queries to that object's {@link Sat4j#getStats()}. One instance per model
+ * file is shared through {@link #forFile}; queries are serialised because the underlying {@link Sat4jSession} is
+ * not thread-safe.</p>
+ */
+public final class DirectiveScopedSat4j {
+
+	/** Entries kept by each cache: models per feature and samples per directive set. */
+	public static final int MAX_CACHED = 4096;
+
+	private static final Map<String, DirectiveScopedSat4j> INSTANCES = new ConcurrentHashMap<String, DirectiveScopedSat4j>();
+
+	private final String file;
+	private final DimacsSymbolTable symbols;
+	private Sat4jSession session = null;
+
+	private final Map<Integer, BitSet> oneEnabledModels = DirectiveScopedSat4j.newCache();
+	private final Map<Integer, BitSet> oneDisabledModels = DirectiveScopedSat4j.newCache();
+	private final Map<String, List<List<String>>> oneEnabledSamples = DirectiveScopedSat4j.newCache();
+	private final Map<String, List<List<String>>> oneDisabledSamples = DirectiveScopedSat4j.newCache();
+
+	private int cacheHits = 0;
+	private int cacheMisses = 0;
+	private int solvedFeatures = 0;
+	private int reusedFeatures = 0;
+
+	private DirectiveScopedSat4j(String file) throws Exception {
+		this.file = file;
+		this.symbols = DimacsSymbolTable.forFile(file);
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> directives = new ArrayList<String>();
+		directives.add("ENABLE_FEATURE_SEAMLESS_GZ");
+		directives.add("ENABLE_FEATURE_TAR_CREATE");
+		directives.add("ENABLE_FEATURE_TAR_LONG_OPTIONS");
+		directives.add("ENABLE_NOT_IN_THE_MODEL");
+
+		DirectiveScopedSat4j scoped = DirectiveScopedSat4j.forFile("featureModel/busybox.dimacs");
+		Sat4j settings = new Sat4j(Sat4jSession.Strategy.MODEL_IMPROVING);
+		long start = System.currentTimeMillis();
+		System.out.println(scoped.getOneEnabled(directives, settings));
+		System.out.println(scoped.getOneDisabled(directives, settings));
+		System.out.println("First: " + (System.currentTimeMillis() - start) + " ms");
+
+		start = System.currentTimeMillis();
+		directives.remove(0);
+		scoped.getOneEnabled(directives, settings);
+		scoped.getOneEnabled(directives, settings);
+		System.out.println("Overlapping and repeated: " + (System.currentTimeMillis() - start) + " ms, hits "
+				+ scoped.getCacheHits() + ", misses " + scoped.getCacheMisses() + ", solved features "
+				+ scoped.getSolvedFeatures() + ", reused features " + scoped.getReusedFeatures());
+		System.out.println("Stats: " + settings.getStats());
+
+		// A budget of one solver call cuts the queries off: answers are returned but not cached..
+		Sat4j budgeted = new Sat4j(Sat4jSession.Strategy.LINEAR);
+		budgeted.setBudget(new SolverBudget(0, 0, 1));
+		directives.add("ENABLE_FEATURE_TAR_FROM");
+		System.out.println(scoped.getOneDisabled(directives, budgeted) + ", " + budgeted.getStats());
+	}
+
+	/***
+	 * <p>Returns the shared instance of a DIMACS file.</p>
+	 * @param file DIMACS file path
+	 * @return the instance
+	 * @throws Exception
+	 */
+	public static DirectiveScopedSat4j forFile(String file) throws Exception {
+		String key = new File(file).getCanonicalPath();
+		DirectiveScopedSat4j scoped = INSTANCES.get(key);
+		if (scoped == null){
+			scoped = new DirectiveScopedSat4j(file);
+			DirectiveScopedSat4j previous = INSTANCES.putIfAbsent(key, scoped);
+			if (previous != null){
+				scoped = previous;
+			}
+		}
+		return scoped;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/***
+	 * <p>One-enabled restricted to the directives: for every directive of the model, the configuration with the
+	 * fewest features enabled that still enables it, projected onto the directives.</p>
+	 * @param directives directives of a source file (names missing from the model are ignored)
+	 * @param settings the caller, whose settings the queries run with and whose stats they are added to
+	 * @return one configuration per satisfiable directive, in variable order
+	 * @throws Exception
+	 */
+	public synchronized List<List<String>> getOneEnabled(Collection<String> directives, Sat4j settings) throws Exception {
+		return this.getSamples(directives, true, settings);
+	}
+
+	/***
+	 * <p>One-disabled restricted to the directives, see {@link #getOneEnabled}.</p>
+	 */
+	public synchronized List<List<String>> getOneDisabled(Collection<String> directives, Sat4j settings) throws Exception {
+		return this.getSamples(directives, false, settings);
+	}
+
+	private List<List<String>> getSamples(Collection<String> directives, boolean enabled, Sat4j settings) throws Exception {
+		// Ids in variable order, so the key (and the sample order) does not depend on the order in the file..
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+		for (String directive : directives){
+			int id = this.symbols.getId(directive);
+			if (id > 0){
+				ids.add(id);
+			}
+		}
+		String key = ids.toString();
+
+		Map<String, List<List<String>>> samples = enabled ? this.oneEnabledSamples : this.oneDisabledSamples;
+		List<List<String>> cached = samples.get(key);
+		if (cached != null){
+			this.cacheHits++;
+			return DirectiveScopedSat4j.copy(cached);
+		}
+		this.cacheMisses++;
+
+		Map<Integer, BitSet> models = enabled ? this.oneEnabledModels : this.oneDisabledModels;
+		List<List<String>> configurations = new ArrayList<List<String>>();
+		QueryStats stats = new QueryStats();
+		boolean complete = true;
+		try {
+			for (int id : ids){
+				BitSet model;
+				if (models.containsKey(id)){
+					model = models.get(id);
+					this.reusedFeatures++;
+				} else {
+					Sat4jSession session = this.getSession(settings, stats);
+					model = DirectiveScopedSat4j.toBitSet(enabled ? session.findOneEnabledModel(id) : session.findOneDisabledModel(id));
+					stats.add(session.getLastQueryStats());
+					if (session.getLastQueryStats().getStatus() == QueryStats.Status.BUDGET_EXHAUSTED){
+						complete = false;
+					} else {
+						models.put(id, model);
+					}
+					this.solvedFeatures++;
+				}
+				if (model != null){ // unsatisfiable (dead / core) directive..
+					configurations.add(this.project(model, ids));
+				}
+			}
+		} finally {
+			settings.addStats(stats);
+		}
+		if (complete){
+			samples.put(key, configurations);
+		}
+		return DirectiveScopedSat4j.copy(configurations);
+	}
+
+	/***
+	 * <p>The session, set up with the caller's settings; a new one (its parse charged to <i>stats</i>) when there is
+	 * none yet or the caller asks for another solver.</p>
+	 */
+	private Sat4jSession getSession(Sat4j settings, QueryStats stats) throws Exception {
+		String solverName = settings.getSolverName(this.file);
+		if (this.session == null || !this.session.getSolverName().equals((solverName == null) ? Sat4jSession.DEFAULT_SOLVER : solverName)){
+			this.session = new Sat4jSession(this.file, settings.getStrategy(), solverName);
+			stats.add(this.session.getStats());
+		}
+		settings.configure(this.session, this.file);
+		return this.session;
+	}
+
+	/***
+	 * <p>The enabled variables of a model (bit id - 1 for variable id), or null for no model.</p>
+	 */
+	private static BitSet toBitSet(int[] model) {
+		if (model == null){
+			return null;
+		}
+		BitSet enabled = new BitSet(model.length);
+		for (int literal : model){
+			if (literal > 0){
+				enabled.set(literal - 1);
+			}
+		}
+		return enabled;
+	}
+
+	/***
+	 * <p>A map keeping its {@link #MAX_CACHED} most recently used entries.</p>
+	 */
+	private static <K, V> Map<K, V> newCache() {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return this.size() > MAX_CACHED;
+			}
+		};
+	}
+
+	/***
+	 * <p>The values of the directives in a model, disabled directives prefixed by "!".</p>
+	 */
+	private List<String> project(BitSet model, TreeSet<Integer> ids) {
+		List<String> configuration = new ArrayList<String>(ids.size());
+		for (int id : ids){
+			String name = this.symbols.getName(id);
+			if (model.get(id - 1)){
+				configuration.add(name);
+			} else {
+				configuration.add("!" + name);
+			}
+		}
+		return configuration;
+	}
+
+	private static List<List<String>> copy(List<List<String>> configurations) {
+		List<List<String>> copy = new ArrayList<List<String>>(configurations.size());
+		for (List<String> configuration : configurations){
+			copy.add(new ArrayList<String>(configuration));
+		}
+		return copy;
+	}
+
+	public synchronized int getCacheHits() {
+		return cacheHits;
+	}
+
+	public synchronized int getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/***
+	 * <p>Number of features solved with the session.</p>
+	 */
+	public synchronized int getSolvedFeatures() {
+		return solvedFeatures;
+	}
+
+	/***
+	 * <p>Number of features whose model was taken from an earlier directive set.</p>
+	 */
+	public synchronized int getReusedFeatures() {
+		return reusedFeatures;
+	}
+
+}
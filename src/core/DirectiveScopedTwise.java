@@ -0,0 +1,222 @@
+package core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * <p>DirectiveScopedTwise builds a t-wise sample over the directives of one source file instead of projecting a
+ * covering array of the whole model onto them.</p>
+ * <p>Only the t-tuples of the file's own directives are covered ({@link TwiseCoveringArrayGenerator#setFeatures}),
+ * each checked against the whole feature model, which is the model projected onto those directives: every valid
+ * local tuple is in the sample and every sample is a valid configuration. Samples are projected onto the directives
+ * and cached per (t, directive set), so files sharing a directive set share the sample; the cache keeps the
+ * {@link #MAX_CACHED} most recently used sets. A file without directives of the model gets one empty configuration,
+ * as the projection of a global covering array gives it. One instance per model file is shared through
+ * {@link #forFile}; queries are serialised on its single {@link Sat4jSession}.</p>
+ * <p>{@link #complete} adds to an existing sample set only the samples its missing tuples need.</p>
+ */
+public final class DirectiveScopedTwise {
+
+	/** Directive sets whose samples are kept. */
+	public static final int MAX_CACHED = 4096;
+
+	private static final Map<String, DirectiveScopedTwise> INSTANCES = new ConcurrentHashMap<String, DirectiveScopedTwise>();
+
+	private final String file;
+	private final DimacsSymbolTable symbols;
+	private Sat4jSession session = null;
+	private final Map<String, List<List<String>>> samples = DirectiveScopedTwise.newCache();
+
+	private int cacheHits = 0;
+	private int cacheMisses = 0;
+
+	private DirectiveScopedTwise(String file) throws Exception {
+		this.file = file;
+		this.symbols = DimacsSymbolTable.forFile(file);
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> directives = new ArrayList<String>();
+		directives.add("ENABLE_FEATURE_SEAMLESS_GZ");
+		directives.add("ENABLE_FEATURE_TAR_CREATE");
+		directives.add("ENABLE_FEATURE_TAR_LONG_OPTIONS");
+		directives.add("ENABLE_FEATURE_TAR_FROM");
+		directives.add("ENABLE_TAR");
+		directives.add("ENABLE_NOT_IN_THE_MODEL");
+
+		DirectiveScopedTwise scoped = DirectiveScopedTwise.forFile("featureModel/busybox.dimacs");
+		for (int t = 1; t <= 4; t++){
+			long start = System.currentTimeMillis();
+			List<List<String>> samples = scoped.getSamples(directives, t);
+			System.out.println(t + "-wise: " + samples.size() + " samples, " + (System.currentTimeMillis() - start) + " ms");
+		}
+		long start = System.currentTimeMillis();
+		scoped.getSamples(directives, 4);
+		System.out.println("Again: " + (System.currentTimeMillis() - start) + " ms, hits " + scoped.getCacheHits()
+				+ ", misses " + scoped.getCacheMisses());
+	}
+
+	/***
+	 * <p>Returns the shared instance of a DIMACS file.</p>
+	 * @param file DIMACS file path
+	 * @return the instance
+	 * @throws Exception
+	 */
+	public static DirectiveScopedTwise forFile(String file) throws Exception {
+		String key = new File(file).getCanonicalPath();
+		DirectiveScopedTwise scoped = INSTANCES.get(key);
+		if (scoped == null){
+			scoped = new DirectiveScopedTwise(file);
+			DirectiveScopedTwise previous = INSTANCES.putIfAbsent(key, scoped);
+			if (previous != null){
+				scoped = previous;
+			}
+		}
+		return scoped;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/***
+	 * <p>A t-wise sample of the directives: every combination of t directives takes every value assignment the
+	 * feature model allows in some sample (all of them together if there are fewer than t directives).</p>
+	 * @param directives directives of a source file (names missing from the model are ignored)
+	 * @param t strength, 1 to 4
+	 * @return the samples projected onto the directives, disabled ones prefixed by "!", without duplicates (one empty
+	 * configuration if no directive is in the model)
+	 * @throws Exception
+	 */
+	public synchronized List<List<String>> getSamples(Collection<String> directives, int t) throws Exception {
+		// Ids in variable order, so the key does not depend on the order in the file..
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+		for (String directive : directives){
+			int id = this.symbols.getId(directive);
+			if (id > 0){
+				ids.add(id);
+			}
+		}
+		String key = t + ":" + ids;
+		List<List<String>> cached = this.samples.get(key);
+		if (cached != null){
+			this.cacheHits++;
+			return DirectiveScopedTwise.copy(cached);
+		}
+		this.cacheMisses++;
+
+		List<String> names = new ArrayList<String>(ids.size());
+		for (int id : ids){
+			names.add(this.symbols.getName(id));
+		}
+		LinkedHashSet<List<String>> projected = new LinkedHashSet<List<String>>();
+		if (ids.isEmpty()){
+			projected.add(new ArrayList<String>());
+		} else {
+			TwiseCoveringArrayGenerator generator = new TwiseCoveringArrayGenerator(this.file, Math.min(t, ids.size()), 1);
+			generator.setFeatures(names);
+			for (int[] model : generator.generate(this.getSession())){
+				projected.add(this.project(model, ids));
+			}
+		}
+		List<List<String>> configurations = new ArrayList<List<String>>(projected);
+		this.samples.put(key, configurations);
+		return DirectiveScopedTwise.copy(configurations);
+	}
+
+	/***
+	 * <p>The samples to add to existing ones (e.g. the union of two samplings) so that together they reach t-wise
+	 * coverage of the directives: the existing samples' tuples count as covered and only the uncovered valid tuples
+	 * get new samples. Not cached, as the result depends on the existing samples.</p>
+	 * @param directives directives of a source file (names missing from the model are ignored)
+	 * @param existing samples, enabled directives by name and disabled ones prefixed by "!"
+	 * @param t strength, 1 to 4
+	 * @return the added samples projected onto the directives, without duplicates (empty if nothing is missing)
+	 * @throws Exception
+	 */
+	public synchronized List<List<String>> complete(Collection<String> directives, List<List<String>> existing, int t)
+			throws Exception {
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+		for (String directive : directives){
+			int id = this.symbols.getId(directive);
+			if (id > 0){
+				ids.add(id);
+			}
+		}
+		List<String> names = new ArrayList<String>(ids.size());
+		for (int id : ids){
+			names.add(this.symbols.getName(id));
+		}
+		LinkedHashSet<List<String>> projected = new LinkedHashSet<List<String>>();
+		if (!ids.isEmpty()){
+			TwiseCoveringArrayGenerator generator = new TwiseCoveringArrayGenerator(this.file, Math.min(t, ids.size()), 1);
+			generator.setFeatures(names);
+			generator.setInitialConfigurations(existing);
+			for (int[] model : generator.generate(this.getSession())){
+				projected.add(this.project(model, ids));
+			}
+		}
+		return new ArrayList<List<String>>(projected);
+	}
+
+	private Sat4jSession getSession() throws Exception {
+		if (this.session == null){
+			this.session = new Sat4jSession(this.file);
+		}
+		return this.session;
+	}
+
+	/***
+	 * <p>A map keeping its {@link #MAX_CACHED} most recently used entries.</p>
+	 */
+	private static <K, V> Map<K, V> newCache() {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return this.size() > MAX_CACHED;
+			}
+		};
+	}
+
+	/***
+	 * <p>The values of the directives in a model, disabled directives prefixed by "!".</p>
+	 */
+	private List<String> project(int[] model, TreeSet<Integer> ids) {
+		List<String> configuration = new ArrayList<String>(ids.size());
+		for (int id : ids){
+			String name = this.symbols.getName(id);
+			if (model[id - 1] > 0){
+				configuration.add(name);
+			} else {
+				configuration.add("!" + name);
+			}
+		}
+		return configuration;
+	}
+
+	private static List<List<String>> copy(List<List<String>> configurations) {
+		List<List<String>> copy = new ArrayList<List<String>>(configurations.size());
+		for (List<String> configuration : configurations){
+			copy.add(new ArrayList<String>(configuration));
+		}
+		return copy;
+	}
+
+	public synchronized int getCacheHits() {
+		return cacheHits;
+	}
+
+	public synchronized int getCacheMisses() {
+		return cacheMisses;
+	}
+
+}
@@ -0,0 +1,284 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.reader.DimacsReader;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+import org.sat4j.tools.Backbone;
+
+/***
+ * <p>FeatureModelBackbone holds the core (always enabled), dead (never enabled) and free variables of a DIMACS
+ * feature model.</p>
+ * <p>It is computed once with Sat4j's {@link Backbone} (or literal by literal when that fails, see {@link #compute})
+ * and cached on disk next to the model, in
+ * "&lt;model&gt;.backbone". The cache is reused as long as the model's size and modification time match the
+ * ones recorded in it. {@link Sat4jSession} uses it to answer impossible queries (enabling a dead feature,
+ * disabling a core feature) without calling the solver.</p>
+ */
+public final class FeatureModelBackbone {
+
+	private static final Map<String, FeatureModelBackbone> BACKBONES = new ConcurrentHashMap<String, FeatureModelBackbone>();
+
+	private static final byte FREE = 0;
+	private static final byte CORE = 1;
+	private static final byte DEAD = -1;
+
+	private final byte[] values;
+	private final int numberOfCore;
+	private final int numberOfDead;
+
+	private FeatureModelBackbone(byte[] values) {
+		this.values = values;
+		int core = 0;
+		int dead = 0;
+		for (byte value : values){
+			if (value == CORE){
+				core++;
+			} else if (value == DEAD){
+				dead++;
+			}
+		}
+		this.numberOfCore = core;
+		this.numberOfDead = dead;
+	}
+
+	public static void main(String[] args) throws Exception {
+		long start = System.currentTimeMillis();
+		FeatureModelBackbone backbone = FeatureModelBackbone.forFile("featureModel/busybox.dimacs");
+		System.out.println("Core: " + backbone.getNumberOfCore() + ", dead: " + backbone.getNumberOfDead()
+				+ ", free: " + backbone.getNumberOfFree() + " (" + (System.currentTimeMillis() - start) + " ms)");
+
+		// A model with a variable in no clause (3), which Sat4j's Backbone cannot handle: 1 dead, 2 core, 3 free..
+		File unused = File.createTempFile("unused", ".dimacs");
+		unused.deleteOnExit();
+		PrintWriter writer = new PrintWriter(unused);
+		writer.println("p cnf 3 2");
+		writer.println("1 2 0");
+		writer.println("-1 0");
+		writer.close();
+		backbone = FeatureModelBackbone.compute(unused.getPath());
+		System.out.println("Unused variable: core " + backbone.getNumberOfCore() + ", dead " + backbone.getNumberOfDead()
+				+ ", free " + backbone.getNumberOfFree() + (backbone.isFree(3) ? " (3 free)" : " (3 not free)"));
+	}
+
+	/***
+	 * <p>Returns the backbone of a DIMACS file: from memory, else from the on-disk cache, else computed (and cached).</p>
+	 * @param file DIMACS file path
+	 * @return the backbone
+	 * @throws Exception
+	 */
+	public static FeatureModelBackbone forFile(String file) throws Exception {
+		File model = new File(file).getCanonicalFile();
+		String key = model.getPath() + ":" + model.length() + ":" + model.lastModified();
+		FeatureModelBackbone backbone = BACKBONES.get(key);
+		if (backbone != null){
+			return backbone;
+		}
+
+		File cache = new File(model.getPath() + ".backbone");
+		backbone = FeatureModelBackbone.read(cache, model);
+		if (backbone == null){
+			backbone = FeatureModelBackbone.compute(model.getPath());
+			try {
+				backbone.write(cache, model);
+			} catch (Exception e){
+				System.err.println("Could not write backbone cache " + cache + ": " + e.getMessage());
+			}
+		}
+		FeatureModelBackbone previous = BACKBONES.putIfAbsent(key, backbone);
+		return (previous != null) ? previous : backbone;
+	}
+
+	/***
+	 * <p>Computes the backbone of a DIMACS file without touching the cache.</p>
+	 * <p>Sat4j's {@link Backbone} gives up ("Cannot decide the satisfiability") when a variable occurs in no clause;
+	 * the backbone is then found literal by literal with {@link #computeByLiterals}.</p>
+	 */
+	public static FeatureModelBackbone compute(String file) throws Exception {
+		ISolver solver = SolverFactory.newDefault();
+		new DimacsReader(solver).parseInstance(file);
+		byte[] values = new byte[solver.nVars() + 1];
+		if (!solver.isSatisfiable()){
+			// No configuration at all: every feature is dead..
+			for (int i = 1; i < values.length; i++){
+				values[i] = DEAD;
+			}
+			return new FeatureModelBackbone(values);
+		}
+		IVecInt literals;
+		try {
+			literals = Backbone.compute(solver);
+		} catch (TimeoutException e){
+			// The failed run leaves the solver unusable: the literal checks get a fresh one..
+			solver = SolverFactory.newDefault();
+			new DimacsReader(solver).parseInstance(file);
+			literals = FeatureModelBackbone.computeByLiterals(solver, values.length - 1);
+		}
+		for (int i = 0; i < literals.size(); i++){
+			int literal = literals.get(i);
+			if (Math.abs(literal) < values.length){
+				values[Math.abs(literal)] = (literal > 0) ? CORE : DEAD;
+			}
+		}
+		return new FeatureModelBackbone(values);
+	}
+
+	/***
+	 * <p>The backbone literals of a satisfiable solver, a solver call per candidate: a literal of the first model is
+	 * in the backbone if its negation is unsatisfiable, and every model found drops the candidates it contradicts.</p>
+	 */
+	static IVecInt computeByLiterals(ISolver solver, int numberOfVariables) throws TimeoutException {
+		IVecInt backbone = new VecInt();
+		if (!solver.isSatisfiable()){
+			return backbone;
+		}
+		int[] candidates = new int[numberOfVariables + 1];
+		for (int literal : solver.model()){
+			if (Math.abs(literal) <= numberOfVariables){
+				candidates[Math.abs(literal)] = literal;
+			}
+		}
+		for (int id = 1; id <= numberOfVariables; id++){
+			int literal = candidates[id];
+			if (literal == 0){
+				continue;
+			}
+			if (solver.isSatisfiable(new VecInt(new int[] {-literal}))){
+				for (int other : solver.model()){
+					int otherId = Math.abs(other);
+					if (otherId <= numberOfVariables && candidates[otherId] == -other){
+						candidates[otherId] = 0;
+					}
+				}
+			} else {
+				backbone.push(literal);
+			}
+		}
+		return backbone;
+	}
+
+	/***
+	 * <p>Reads a cache file, or returns null if it is missing, unreadable or stale.</p>
+	 */
+	static FeatureModelBackbone read(File cache, File model) {
+		if (!cache.exists()){
+			return null;
+		}
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(cache)));
+			try {
+				String[] header = br.readLine().split(" ");
+				if (header.length != 5 || !header[1].equals("backbone") || Long.parseLong(header[2]) != model.length()
+						|| Long.parseLong(header[3]) != model.lastModified()){
+					return null;
+				}
+				byte[] values = new byte[Integer.parseInt(header[4]) + 1];
+				String line = null;
+				while ((line = br.readLine()) != null) {
+					String[] parts = line.trim().split(" ");
+					byte value = parts[0].equals("core") ? CORE : DEAD;
+					for (int i = 1; i < parts.length; i++){
+						values[Integer.parseInt(parts[i])] = value;
+					}
+				}
+				return new FeatureModelBackbone(values);
+			} finally {
+				br.close();
+			}
+		} catch (Exception e){
+			return null;
+		}
+	}
+
+	/***
+	 * <p>Writes the cache file: "c backbone &lt;model size&gt; &lt;model mtime&gt; &lt;variables&gt;", then one "core" and one "dead" line of ids.</p>
+	 */
+	void write(File cache, File model) throws Exception {
+		// Written aside and renamed, so an interrupted write never leaves a cache that looks valid..
+		File tmp = new File(cache.getPath() + ".tmp");
+		PrintWriter writer = new PrintWriter(tmp);
+		writer.println("c backbone " + model.length() + " " + model.lastModified() + " " + this.getNumberOfVariables());
+		StringBuilder core = new StringBuilder("core");
+		StringBuilder dead = new StringBuilder("dead");
+		for (int i = 1; i < this.values.length; i++){
+			if (this.values[i] == CORE){
+				core.append(' ').append(i);
+			} else if (this.values[i] == DEAD){
+				dead.append(' ').append(i);
+			}
+		}
+		writer.println(core);
+		writer.println(dead);
+		writer.close();
+		if (writer.checkError()){
+			tmp.delete();
+			throw new IOException("Could not write " + tmp);
+		}
+		if (!tmp.renameTo(cache)){
+			cache.delete();
+			if (!tmp.renameTo(cache)){
+				tmp.delete();
+				throw new IOException("Could not rename " + tmp + " to " + cache);
+			}
+		}
+	}
+
+	public int getNumberOfVariables() {
+		return values.length - 1;
+	}
+
+	public int getNumberOfCore() {
+		return numberOfCore;
+	}
+
+	public int getNumberOfDead() {
+		return numberOfDead;
+	}
+
+	public int getNumberOfFree() {
+		return this.getNumberOfVariables() - numberOfCore - numberOfDead;
+	}
+
+	public boolean isCore(int id) {
+		return id > 0 && id < values.length && values[id] == CORE;
+	}
+
+	public boolean isDead(int id) {
+		return id > 0 && id < values.length && values[id] == DEAD;
+	}
+
+	public boolean isFree(int id) {
+		return id > 0 && id < values.length && values[id] == FREE;
+	}
+
+	/***
+	 * <p>Whether a literal can never hold: a dead feature enabled or a core feature disabled.</p>
+	 */
+	public boolean isImpossible(int literal) {
+		return (literal > 0) ? this.isDead(literal) : this.isCore((-1)*literal);
+	}
+
+	/***
+	 * <p>Whether any of the literals can never hold.</p>
+	 */
+	public boolean isImpossible(int[] literals) {
+		for (int literal : literals){
+			if (this.isImpossible(literal)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,136 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.fosd.typechef.featureexpr.FeatureModel;
+import de.fosd.typechef.lexer.FeatureExprLib;
+
+/***
+ * <p>FeatureModelRegistry holds the TypeChef {@link FeatureModel} of each DIMACS file, keyed by canonical path and
+ * loaded (createFromDimacsFile_2Var) on first use, once per JVM, for code that checks FeatureExprs against the
+ * model (the Constrained* algorithms check configurations with {@link ConfigurationValidator}).</p>
+ * <p>Thread-safe: a model is loaded by the first thread asking for it while others wait for that model only;
+ * once loaded it is returned without locking. The load time and the heap it took (used heap before and after, so
+ * approximate when other threads allocate) are kept per model.</p>
+ */
+public final class FeatureModelRegistry {
+
+	private static final ConcurrentHashMap<String, Entry> MODELS = new ConcurrentHashMap<String, Entry>();
+
+	private FeatureModelRegistry() {
+
+	}
+
+	public static void main(String[] args) throws Exception {
+		String file = args.length > 0 ? args[0] : "featureModel/busybox.dimacs";
+		for (int i = 0; i < 3; i++){
+			long start = System.nanoTime();
+			FeatureModelRegistry.get(file);
+			System.out.println("get " + (i + 1) + ": " + (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		System.out.println(FeatureModelRegistry.report());
+	}
+
+	/***
+	 * <p>Returns the model of a DIMACS file, loading it on first use.</p>
+	 * @param file DIMACS file path
+	 * @return the shared model
+	 * @throws IOException
+	 */
+	public static FeatureModel get(String file) throws IOException {
+		return FeatureModelRegistry.get(new File(file));
+	}
+
+	public static FeatureModel get(File file) throws IOException {
+		String key = file.getCanonicalPath();
+		Entry entry = MODELS.get(key);
+		if (entry == null){
+			entry = new Entry(key);
+			Entry previous = MODELS.putIfAbsent(key, entry);
+			if (previous != null){
+				entry = previous;
+			}
+		}
+		return entry.get();
+	}
+
+	public static boolean isLoaded(File file) throws IOException {
+		Entry entry = MODELS.get(file.getCanonicalPath());
+		return entry != null && entry.model != null;
+	}
+
+	/***
+	 * <p>Milliseconds the model of a file took to load, or -1 if it is not loaded.</p>
+	 */
+	public static long getLoadMillis(File file) throws IOException {
+		Entry entry = MODELS.get(file.getCanonicalPath());
+		return (entry == null || entry.model == null) ? -1 : entry.loadMillis;
+	}
+
+	/***
+	 * <p>Bytes of heap the model of a file took to load (approximate), or -1 if it is not loaded.</p>
+	 */
+	public static long getMemory(File file) throws IOException {
+		Entry entry = MODELS.get(file.getCanonicalPath());
+		return (entry == null || entry.model == null) ? -1 : entry.memory;
+	}
+
+	/***
+	 * <p>A line per loaded model: path, load time, heap and number of requests.</p>
+	 */
+	public static String report() {
+		StringBuilder report = new StringBuilder();
+		for (Entry entry : new TreeMap<String, Entry>(MODELS).values()){
+			if (entry.model != null){
+				report.append(entry.path).append(": loaded in ").append(entry.loadMillis).append(" ms, ")
+						.append(entry.memory / 1024).append(" KB, ").append(entry.requests.get()).append(" requests\n");
+			}
+		}
+		return report.toString();
+	}
+
+	/***
+	 * <p>Drops every model (they are loaded again on next use).</p>
+	 */
+	public static void clear() {
+		MODELS.clear();
+	}
+
+	private static final class Entry {
+
+		final String path;
+		volatile FeatureModel model = null;
+		long loadMillis = 0;
+		long memory = 0;
+		final AtomicLong requests = new AtomicLong();
+
+		Entry(String path) {
+			this.path = path;
+		}
+
+		FeatureModel get() {
+			this.requests.incrementAndGet();
+			FeatureModel model = this.model;
+			return (model != null) ? model : this.load();
+		}
+
+		private synchronized FeatureModel load() {
+			if (this.model == null){
+				Runtime runtime = Runtime.getRuntime();
+				long used = runtime.totalMemory() - runtime.freeMemory();
+				long start = System.currentTimeMillis();
+				FeatureModel loaded = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var(this.path);
+				this.loadMillis = System.currentTimeMillis() - start;
+				this.memory = Math.max(0, runtime.totalMemory() - runtime.freeMemory() - used);
+				this.model = loaded;
+			}
+			return this.model;
+		}
+
+	}
+
+}
@@ -0,0 +1,248 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * <p>IncludeClosure gives the directives of a C source together with the ones of the headers it includes, directly
+ * or not, resolved against an include path: "name.h" is looked up in the directory of the including file first,
+ * &lt;dir/name.h&gt; in the include path only, as the preprocessor does. Headers not found (system headers, sources
+ * not in the tree) are left out.</p>
+ * <p>Each header is lexed once: its own directives and includes come from {@link DirectiveIndex}, keyed by content
+ * hash, and its closure is memoized per canonical path with the content hash of the file and of every header in
+ * it, so the closures of thousands of sources cost little more than reading each header once. A memo is used only
+ * while none of those files changed (a hash lookup each, from the index's size and modification time); a header
+ * that only appears on disk, where an include used to resolve to another file or to none, is not noticed. One
+ * instance per include path is shared through {@link #forPath}; all methods are thread-safe.</p>
+ */
+public final class IncludeClosure {
+
+	private static final Map<String, IncludeClosure> INSTANCES = new ConcurrentHashMap<String, IncludeClosure>();
+
+	private final List<File> includePath;
+	private final DirectiveIndex index;
+	private final Map<String, Closure> closures = new ConcurrentHashMap<String, Closure>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private IncludeClosure(List<File> includePath, DirectiveIndex index) {
+		this.includePath = includePath;
+		this.index = index;
+	}
+
+	public static void main(String[] args) throws Exception {
+		IncludeClosure closure = IncludeClosure.forPath(IncludeClosure.parsePath(args.length > 0 ? args[0] : "bugs/linux/include"));
+		File source = new File(args.length > 1 ? args[1] : "bugs/linux/include/linux/if_vlan.h");
+		System.out.println("Own directives: " + DirectiveIndex.getDefault().getDirectives(source));
+		System.out.println("Headers: " + closure.getHeaders(source));
+		System.out.println("Directives: " + closure.getDirectives(source));
+		System.out.println(closure);
+	}
+
+	/***
+	 * <p>Returns the shared closure of an include path.</p>
+	 * @param includePath directories, searched in order
+	 * @return the closure, using the default {@link DirectiveIndex}
+	 * @throws IOException
+	 */
+	public static IncludeClosure forPath(List<File> includePath) throws IOException {
+		List<File> directories = new ArrayList<File>();
+		StringBuilder key = new StringBuilder();
+		for (File directory : includePath){
+			directories.add(directory.getCanonicalFile());
+			key.append(directory.getCanonicalPath()).append(File.pathSeparatorChar);
+		}
+		IncludeClosure closure = INSTANCES.get(key.toString());
+		if (closure == null){
+			synchronized (INSTANCES){
+				closure = INSTANCES.get(key.toString());
+				if (closure == null){
+					closure = new IncludeClosure(Collections.unmodifiableList(directories), DirectiveIndex.getDefault());
+					INSTANCES.put(key.toString(), closure);
+				}
+			}
+		}
+		return closure;
+	}
+
+	/***
+	 * <p>Splits an include path written as on a command line ("dir1:dir2", with the platform separator).</p>
+	 */
+	public static List<File> parsePath(String path) {
+		List<File> directories = new ArrayList<File>();
+		for (String directory : path.split(File.pathSeparator)){
+			if (!directory.isEmpty()){
+				directories.add(new File(directory));
+			}
+		}
+		return directories;
+	}
+
+	public List<File> getIncludePath() {
+		return includePath;
+	}
+
+	/***
+	 * <p>The directives of a source followed by the ones of the headers it includes (in include order, without
+	 * duplicates).</p>
+	 * @param source C source or header
+	 * @return a new set
+	 * @throws IOException
+	 */
+	public LinkedHashSet<String> getDirectives(File source) throws IOException {
+		return new LinkedHashSet<String>(Arrays.asList(this.closure(source.getCanonicalFile(), new HashSet<String>()).directives));
+	}
+
+	/***
+	 * <p>The headers a source includes, directly or not, that the include path resolves (canonical paths, in include
+	 * order).</p>
+	 */
+	public List<String> getHeaders(File source) throws IOException {
+		return Collections.unmodifiableList(Arrays.asList(this.closure(source.getCanonicalFile(), new HashSet<String>()).headers));
+	}
+
+	/***
+	 * <p>The file an #include operand names, as seen from the including file, or null if none.</p>
+	 * @param includer canonical file holding the #include
+	 * @param operand "name.h" or &lt;dir/name.h&gt;
+	 */
+	public File resolve(File includer, String operand) {
+		if (operand.length() < 3){
+			return null;
+		}
+		String name = operand.substring(1, operand.length() - 1);
+		if (operand.charAt(0) == '"'){
+			File local = new File(includer.getParentFile(), name);
+			if (local.isFile()){
+				return local;
+			}
+		}
+		for (File directory : this.includePath){
+			File header = new File(directory, name);
+			if (header.isFile()){
+				return header;
+			}
+		}
+		return null;
+	}
+
+	/***
+	 * <p>The closure of a canonical file. A header already being expanded (an include cycle) contributes nothing
+	 * to its includers, whose closures are then not memoized.</p>
+	 * @param visiting canonical paths being expanded on this call chain
+	 */
+	private Closure closure(File file, Set<String> visiting) throws IOException {
+		String path = file.getPath();
+		String hash = this.index.getHash(file);
+		Closure closure = this.closures.get(path);
+		if (closure != null && this.isCurrent(closure, hash)){
+			this.hits.incrementAndGet();
+			return closure;
+		}
+		this.misses.incrementAndGet();
+
+		visiting.add(path);
+		LinkedHashSet<String> directives = this.index.getDirectives(file);
+		LinkedHashSet<String> headers = new LinkedHashSet<String>();
+		boolean complete = true;
+		for (String operand : this.index.getIncludes(file)){
+			File header = this.resolve(file, operand);
+			if (header == null){
+				continue;
+			}
+			header = header.getCanonicalFile();
+			if (visiting.contains(header.getPath())){
+				complete = false;
+				continue;
+			}
+			Closure included = this.closure(header, visiting);
+			complete &= included.complete;
+			headers.add(header.getPath());
+			headers.addAll(Arrays.asList(included.headers));
+			directives.addAll(Arrays.asList(included.directives));
+		}
+		visiting.remove(path);
+
+		headers.remove(path);
+		String[] hashes = new String[headers.size()];
+		int h = 0;
+		for (String header : headers){
+			hashes[h++] = this.index.getHash(new File(header));
+		}
+		closure = new Closure(hash, directives.toArray(new String[0]), headers.toArray(new String[0]), hashes, complete);
+		if (complete){
+			this.closures.put(path, closure);
+		}
+		return closure;
+	}
+
+	/***
+	 * <p>Whether neither a file (its hash given) nor a header of its memoized closure changed since.</p>
+	 */
+	private boolean isCurrent(Closure closure, String hash) {
+		if (!closure.hash.equals(hash)){
+			return false;
+		}
+		for (int i = 0; i < closure.headers.length; i++){
+			File header = new File(closure.headers[i]);
+			try {
+				if (!header.isFile() || !this.index.getHash(header).equals(closure.hashes[i])){
+					return false;
+				}
+			} catch (IOException e){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/***
+	 * <p>Closures answered from memory.</p>
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/***
+	 * <p>Closures computed.</p>
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "include path " + this.includePath + ", closures " + this.closures.size() + ", hits " + this.hits.get()
+				+ ", misses " + this.misses.get();
+	}
+
+	private static final class Closure {
+
+		final String hash;
+		final String[] directives;
+		final String[] headers;
+		final String[] hashes;
+		final boolean complete;
+
+		Closure(String hash, String[] directives, String[] headers, String[] hashes, boolean complete) {
+			this.hash = hash;
+			this.directives = directives;
+			this.headers = headers;
+			this.hashes = hashes;
+			this.complete = complete;
+		}
+
+	}
+
+}
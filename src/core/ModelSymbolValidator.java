@@ -0,0 +1,287 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * <p>ModelSymbolValidator checks, in one parallel pass, every macro tested by the sources of a corpus and every
+ * macro of the presence conditions of its bug list against the exact symbol set of a feature model
+ * ({@link DimacsSymbolTable}: a hash lookup per macro, no substring matches), and the macros of each presence
+ * condition against the directives of the bug's file.</p>
+ * <p>The result is a {@link Report} of one problem per row, written as ";"-separated values like the bug lists:
+ * kind;source;line;symbol, with kind {@link #DIRECTIVE} (a source tests a macro the model lacks),
+ * {@link #CONDITION} (a presence condition names a macro the model lacks), {@link #CONDITION_FILE} (a presence
+ * condition names a macro its file never tests) or {@link #FILE} (the bug's file is missing, its path as the
+ * symbol; its macros are then not checked against it). The line is the one of the bug list, empty for
+ * directives.</p>
+ */
+public final class ModelSymbolValidator {
+
+	public static final String DIRECTIVE = "directive";
+	public static final String CONDITION = "condition";
+	public static final String CONDITION_FILE = "condition-file";
+	public static final String FILE = "file";
+
+	private final DimacsSymbolTable model;
+	private final DirectiveIndex index;
+
+	public ModelSymbolValidator(DimacsSymbolTable model, DirectiveIndex index) {
+		this.model = model;
+		this.index = index;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String project = args.length > 0 ? args[0] : "busybox";
+		ModelSymbolValidator validator = new ModelSymbolValidator(DimacsSymbolTable.forFile("featureModel/" + project + ".dimacs"),
+				DirectiveIndex.getDefault());
+		long start = System.currentTimeMillis();
+		Report report = validator.validate(new File("bugs/" + project), new File("bugs/" + project + "/" + project + "-bugs"),
+				Runtime.getRuntime().availableProcessors());
+		long millis = System.currentTimeMillis() - start;
+
+		Writer out = (args.length > 1) ? new FileWriter(args[1]) : new OutputStreamWriter(System.out);
+		report.write(out);
+		out.flush();
+		if (args.length > 1){
+			out.close();
+		}
+		System.err.println(report + " in " + millis + " ms");
+	}
+
+	/***
+	 * <p>Validates the ".c" and ".h" sources under a directory and the presence conditions of a bug list.</p>
+	 * @param root source tree
+	 * @param bugList "project;dir;file;PC;..." lines, files relative to the parent of the project directory (null for none)
+	 * @param threads number of threads
+	 * @return the report, problems in source then symbol order
+	 * @throws Exception
+	 */
+	public Report validate(File root, File bugList, int threads) throws Exception {
+		final List<File> sources = new ArrayList<File>();
+		ModelSymbolValidator.collect(root, sources);
+		final List<String[]> bugs = new ArrayList<String[]>();
+		if (bugList != null){
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(bugList)));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				bugs.add(line.split(";"));
+			}
+			br.close();
+		}
+		final File base = (bugList == null) ? null : bugList.getAbsoluteFile().getParentFile().getParentFile();
+		final String bugSource = (bugList == null) ? null : bugList.getPath();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		List<Future<Report>> futures = new ArrayList<Future<Report>>();
+		try {
+			int chunk = Math.max(1, sources.size() / (Math.max(1, threads) * 8));
+			for (int first = 0; first < sources.size(); first += chunk){
+				final List<File> part = sources.subList(first, Math.min(sources.size(), first + chunk));
+				futures.add(executor.submit(new Callable<Report>() {
+					@Override
+					public Report call() throws Exception {
+						Report report = new Report();
+						for (File source : part){
+							ModelSymbolValidator.this.checkSource(source, report);
+						}
+						return report;
+					}
+				}));
+			}
+			for (int first = 0; first < bugs.size(); first += chunk){
+				final int from = first;
+				final int to = Math.min(bugs.size(), first + chunk);
+				futures.add(executor.submit(new Callable<Report>() {
+					@Override
+					public Report call() throws Exception {
+						Report report = new Report();
+						for (int i = from; i < to; i++){
+							ModelSymbolValidator.this.checkBug(bugs.get(i), base, bugSource, i + 1, report);
+						}
+						return report;
+					}
+				}));
+			}
+
+			Report report = new Report();
+			for (Future<Report> future : futures){
+				try {
+					report.add(future.get());
+				} catch (ExecutionException e){
+					if (e.getCause() instanceof Exception){
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+			report.sort();
+			return report;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void checkSource(File source, Report report) throws Exception {
+		report.sources++;
+		for (String macro : this.index.getDirectives(source)){
+			report.directives++;
+			if (!this.model.contains(macro)){
+				report.problems.add(new String[] {DIRECTIVE, source.getPath(), "", macro});
+			}
+		}
+	}
+
+	private void checkBug(String[] parts, File base, String bugSource, int line, Report report) throws Exception {
+		if (parts.length < 4){
+			return;
+		}
+		report.conditions++;
+		File file = new File(base, parts[0] + "/" + parts[1] + "/" + parts[2]);
+		Set<String> directives = null;
+		if (file.isFile()){
+			directives = this.index.getDirectives(file);
+		} else {
+			report.problems.add(new String[] {FILE, bugSource, String.valueOf(line), parts[0] + "/" + parts[1] + "/" + parts[2]});
+		}
+		for (String macro : ModelSymbolValidator.getMacros(parts[3])){
+			report.conditionMacros++;
+			if (!this.model.contains(macro)){
+				report.problems.add(new String[] {CONDITION, bugSource, String.valueOf(line), macro});
+			}
+			if (directives != null && !directives.contains(macro)){
+				report.problems.add(new String[] {CONDITION_FILE, bugSource, String.valueOf(line), macro});
+			}
+		}
+	}
+
+	/***
+	 * <p>The macros of a presence condition, read as the condition of an #if (so as {@link SamplingAlgorithm#getDirectiveSet}
+	 * reads sources).</p>
+	 */
+	public static LinkedHashSet<String> getMacros(String presenceCondition) {
+		return DirectiveIndex.parse(new DirectiveLexer("#if " + presenceCondition + "\n"), "");
+	}
+
+	private static void collect(File directory, List<File> sources) {
+		File[] children = directory.listFiles();
+		if (children == null){
+			return;
+		}
+		Arrays.sort(children);
+		for (File child : children){
+			String name = child.getName();
+			if (child.isDirectory()){
+				ModelSymbolValidator.collect(child, sources);
+			} else if (name.endsWith(".c") || name.endsWith(".h")){
+				sources.add(child);
+			}
+		}
+	}
+
+	/***
+	 * <p>The problems found and the number of things checked.</p>
+	 */
+	public static final class Report {
+
+		private final List<String[]> problems = new ArrayList<String[]>();
+		private int sources = 0;
+		private int directives = 0;
+		private int conditions = 0;
+		private int conditionMacros = 0;
+
+		private void add(Report other) {
+			this.problems.addAll(other.problems);
+			this.sources += other.sources;
+			this.directives += other.directives;
+			this.conditions += other.conditions;
+			this.conditionMacros += other.conditionMacros;
+		}
+
+		private void sort() {
+			Collections.sort(this.problems, new Comparator<String[]>() {
+				@Override
+				public int compare(String[] a, String[] b) {
+					for (int i = 0; i < a.length; i++){
+						int compare = (i == 2 && !a[i].isEmpty() && !b[i].isEmpty())
+								? Integer.compare(Integer.parseInt(a[i]), Integer.parseInt(b[i])) : a[i].compareTo(b[i]);
+						if (compare != 0){
+							return compare;
+						}
+					}
+					return 0;
+				}
+			});
+		}
+
+		/***
+		 * <p>The problems as kind, source, line, symbol arrays.</p>
+		 */
+		public List<String[]> getProblems() {
+			return Collections.unmodifiableList(problems);
+		}
+
+		/***
+		 * <p>The distinct symbols with problems of a kind.</p>
+		 */
+		public Set<String> getSymbols(String kind) {
+			TreeSet<String> symbols = new TreeSet<String>();
+			for (String[] problem : this.problems){
+				if (problem[0].equals(kind)){
+					symbols.add(problem[3]);
+				}
+			}
+			return symbols;
+		}
+
+		public int getNumberOfProblems(String kind) {
+			int count = 0;
+			for (String[] problem : this.problems){
+				if (problem[0].equals(kind)){
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/***
+		 * <p>Writes the header line "kind;source;line;symbol" and a line per problem.</p>
+		 */
+		public void write(Writer out) {
+			PrintWriter writer = new PrintWriter(out);
+			writer.println("kind;source;line;symbol");
+			for (String[] problem : this.problems){
+				writer.println(problem[0] + ";" + problem[1] + ";" + problem[2] + ";" + problem[3]);
+			}
+			writer.flush();
+		}
+
+		@Override
+		public String toString() {
+			return sources + " sources, " + directives + " directives (" + this.getNumberOfProblems(DIRECTIVE) + " not in the model, "
+					+ this.getSymbols(DIRECTIVE).size() + " distinct), " + conditions + " presence conditions, " + conditionMacros
+					+ " macros (" + this.getNumberOfProblems(CONDITION) + " not in the model, " + this.getNumberOfProblems(CONDITION_FILE)
+					+ " not tested by their file), " + this.getNumberOfProblems(FILE) + " bug files missing";
+		}
+
+	}
+
+}
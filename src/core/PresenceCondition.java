@@ -0,0 +1,161 @@
+package core;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/***
+ * <p>PresenceCondition builds and evaluates presence conditions as compact int formulas: the postfix form of a
+ * formula in negation normal form, where a literal is +id or -id (a variable numbered from 1, as in DIMACS),
+ * {@link #TRUE} and {@link #FALSE} are constants and {@link #AND} / {@link #OR} pop two operands.</p>
+ * <p>Negation only flips literals and swaps the operators, so it stays linear; the constructors fold constants
+ * ("A &amp;&amp; false" is false). The arrays are never changed once built and may be shared.</p>
+ */
+public final class PresenceCondition {
+
+	public static final int TRUE = Integer.MAX_VALUE - 1;
+	public static final int FALSE = -TRUE;
+	public static final int AND = Integer.MIN_VALUE;
+	public static final int OR = Integer.MAX_VALUE;
+
+	private static final int[] TRUE_FORMULA = {TRUE};
+	private static final int[] FALSE_FORMULA = {FALSE};
+
+	private PresenceCondition() {
+
+	}
+
+	public static void main(String[] args) {
+		String[] names = {null, "A", "B", "C"};
+		int[] formula = PresenceCondition.and(PresenceCondition.literal(1),
+				PresenceCondition.or(PresenceCondition.literal(-2), PresenceCondition.literal(3)));
+		System.out.println(PresenceCondition.toString(formula, names) + " = " + Arrays.toString(formula));
+		System.out.println("not: " + PresenceCondition.toString(PresenceCondition.not(formula), names));
+		System.out.println("A, !B, !C: " + PresenceCondition.evaluate(formula, new boolean[] {false, true, false, false}));
+		System.out.println("and false: " + PresenceCondition.toString(PresenceCondition.and(formula, PresenceCondition.constant(false)), names));
+	}
+
+	public static int[] constant(boolean value) {
+		return value ? TRUE_FORMULA : FALSE_FORMULA;
+	}
+
+	/***
+	 * @param literal +id or -id
+	 */
+	public static int[] literal(int literal) {
+		return new int[] {literal};
+	}
+
+	public static boolean isTrue(int[] formula) {
+		return formula.length == 1 && formula[0] == TRUE;
+	}
+
+	public static boolean isFalse(int[] formula) {
+		return formula.length == 1 && formula[0] == FALSE;
+	}
+
+	public static int[] and(int[] a, int[] b) {
+		if (PresenceCondition.isFalse(a) || PresenceCondition.isTrue(b)){
+			return a;
+		}
+		if (PresenceCondition.isFalse(b) || PresenceCondition.isTrue(a)){
+			return b;
+		}
+		return PresenceCondition.combine(a, b, AND);
+	}
+
+	public static int[] or(int[] a, int[] b) {
+		if (PresenceCondition.isTrue(a) || PresenceCondition.isFalse(b)){
+			return a;
+		}
+		if (PresenceCondition.isTrue(b) || PresenceCondition.isFalse(a)){
+			return b;
+		}
+		return PresenceCondition.combine(a, b, OR);
+	}
+
+	public static int[] not(int[] formula) {
+		int[] negated = new int[formula.length];
+		for (int i = 0; i < formula.length; i++){
+			int code = formula[i];
+			negated[i] = (code == AND) ? OR : (code == OR) ? AND : -code;
+		}
+		return negated;
+	}
+
+	private static int[] combine(int[] a, int[] b, int operator) {
+		int[] formula = Arrays.copyOf(a, a.length + b.length + 1);
+		System.arraycopy(b, 0, formula, a.length, b.length);
+		formula[formula.length - 1] = operator;
+		return formula;
+	}
+
+	/***
+	 * <p>Value of a formula under an assignment.</p>
+	 * @param values values[id] is the value of variable id
+	 */
+	public static boolean evaluate(int[] formula, boolean[] values) {
+		boolean[] stack = new boolean[formula.length];
+		int top = 0;
+		for (int code : formula){
+			if (code == AND){
+				top--;
+				stack[top - 1] &= stack[top];
+			} else if (code == OR){
+				top--;
+				stack[top - 1] |= stack[top];
+			} else if (code == TRUE || code == FALSE){
+				stack[top++] = code == TRUE;
+			} else {
+				stack[top++] = (code > 0) ? values[code] : !values[-code];
+			}
+		}
+		return stack[0];
+	}
+
+	/***
+	 * <p>The variables of a formula, in increasing order.</p>
+	 */
+	public static int[] getVariables(int[] formula) {
+		TreeSet<Integer> variables = new TreeSet<Integer>();
+		for (int code : formula){
+			if (code != AND && code != OR && code != TRUE && code != FALSE){
+				variables.add(Math.abs(code));
+			}
+		}
+		int[] array = new int[variables.size()];
+		int i = 0;
+		for (int variable : variables){
+			array[i++] = variable;
+		}
+		return array;
+	}
+
+	/***
+	 * <p>Infix text of a formula, in the syntax of the bug lists ("(A &amp;&amp; !B) || C").</p>
+	 * @param names names[id] is the name of variable id
+	 */
+	public static String toString(int[] formula, String[] names) {
+		String[] text = new String[formula.length];
+		int[] operators = new int[formula.length];
+		int top = 0;
+		for (int code : formula){
+			if (code == AND || code == OR){
+				top--;
+				String a = PresenceCondition.operand(text[top - 1], operators[top - 1], code);
+				String b = PresenceCondition.operand(text[top], operators[top], code);
+				text[top - 1] = a + ((code == AND) ? " && " : " || ") + b;
+				operators[top - 1] = code;
+			} else {
+				text[top] = (code == TRUE) ? "1" : (code == FALSE) ? "0" : ((code > 0) ? "" : "!") + names[Math.abs(code)];
+				operators[top] = 0;
+				top++;
+			}
+		}
+		return text[0];
+	}
+
+	private static String operand(String text, int operator, int parent) {
+		return (operator != 0 && operator != parent) ? "(" + text + ")" : text;
+	}
+
+}
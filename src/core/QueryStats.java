@@ -0,0 +1,139 @@
+package core;
+
+/***
+ * <p>QueryStats records what a {@link Sat4jSession} query cost: parse time (solver (re)builds), solve time,
+ * conflicts, decisions and solver calls, plus how the query ended.</p>
+ * <p>Stats of several queries (or sessions) can be summed with {@link #add}, e.g. by a checker over all its bugs.</p>
+ */
+public class QueryStats {
+
+	public enum Status {
+		/** A model was found and proven optimal. */
+		OPTIMAL,
+		/** No model exists under the assumptions. */
+		UNSATISFIABLE,
+		/** A {@link SolverBudget} limit stopped the query; the model returned (if any) is the best one found. */
+		BUDGET_EXHAUSTED
+	}
+
+	private Status status = Status.OPTIMAL;
+	private int queries = 0;
+	private int exhaustedQueries = 0;
+	private int parses = 0;
+	private long parseNanos = 0;
+	private long solveNanos = 0;
+	private long conflicts = 0;
+	private long decisions = 0;
+	private long calls = 0;
+
+	/***
+	 * <p>How the (last) query ended. For a sum of stats, BUDGET_EXHAUSTED if any query ran out of budget.</p>
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public int getQueries() {
+		return queries;
+	}
+
+	public int getExhaustedQueries() {
+		return exhaustedQueries;
+	}
+
+	/***
+	 * <p>Number of times the model was parsed (solver builds).</p>
+	 */
+	public int getParses() {
+		return parses;
+	}
+
+	public long getParseMillis() {
+		return parseNanos / 1000000;
+	}
+
+	public long getSolveMillis() {
+		return solveNanos / 1000000;
+	}
+
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	public long getDecisions() {
+		return decisions;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	void addParse(long nanos) {
+		this.parses++;
+		this.parseNanos += nanos;
+	}
+
+	void addCall(long nanos, long conflicts, long decisions) {
+		this.calls++;
+		this.solveNanos += nanos;
+		this.conflicts += conflicts;
+		this.decisions += decisions;
+	}
+
+	void countQuery() {
+		this.queries++;
+		if (this.status == Status.BUDGET_EXHAUSTED){
+			this.exhaustedQueries++;
+		}
+	}
+
+	/***
+	 * <p>Adds the counters of other stats to these ones.</p>
+	 */
+	public synchronized void add(QueryStats other) {
+		this.queries += other.queries;
+		this.exhaustedQueries += other.exhaustedQueries;
+		this.parses += other.parses;
+		this.parseNanos += other.parseNanos;
+		this.solveNanos += other.solveNanos;
+		this.conflicts += other.conflicts;
+		this.decisions += other.decisions;
+		this.calls += other.calls;
+		if (other.status == Status.BUDGET_EXHAUSTED || other.exhaustedQueries > 0){
+			this.status = Status.BUDGET_EXHAUSTED;
+		}
+	}
+
+	/***
+	 * <p>The work done since a snapshot of these stats (a sum taken earlier, e.g. {@link ConfigurationValidator#getTotalStats()}).</p>
+	 * @param earlier stats of the same sessions, taken before
+	 * @return new stats holding the differences, BUDGET_EXHAUSTED if a query ran out of budget since
+	 */
+	public synchronized QueryStats since(QueryStats earlier) {
+		QueryStats stats = new QueryStats();
+		stats.queries = this.queries - earlier.queries;
+		stats.exhaustedQueries = this.exhaustedQueries - earlier.exhaustedQueries;
+		stats.parses = this.parses - earlier.parses;
+		stats.parseNanos = this.parseNanos - earlier.parseNanos;
+		stats.solveNanos = this.solveNanos - earlier.solveNanos;
+		stats.conflicts = this.conflicts - earlier.conflicts;
+		stats.decisions = this.decisions - earlier.decisions;
+		stats.calls = this.calls - earlier.calls;
+		if (stats.exhaustedQueries > 0){
+			stats.status = Status.BUDGET_EXHAUSTED;
+		}
+		return stats;
+	}
+
+	@Override
+	public String toString() {
+		return "status=" + status + ", queries=" + queries + ", exhausted=" + exhaustedQueries + ", parses=" + parses
+				+ ", parse=" + this.getParseMillis() + "ms, solve=" + this.getSolveMillis() + "ms, conflicts=" + conflicts
+				+ ", decisions=" + decisions + ", calls=" + calls;
+	}
+
+}
@@ -1,11 +1,8 @@
 package core;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /***
@@ -18,6 +15,7 @@ import java.util.List;
 public abstract class SamplingAlgorithm {
 
 	protected List<String> directives;
+	protected List<File> includePath = null;
 	
 	/**
 	 * <p>ò㷨ȡϣ÷ΪҪʵ֡</p>
@@ -55,61 +53,41 @@ public abstract class SamplingAlgorithm {
 	/**
 	 * <p>ȡ C ļĸ</p>
 	 * @param file C ļ·
-	 * 
+	 * @see #getDirectiveSet
 	 */
 	public List<String> getDirectives(File file) throws Exception{
-		List<String> directives = new ArrayList<>();
-		
-		FileInputStream fstream = new FileInputStream(file);
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-		String strLine;
-
-		while ((strLine = br.readLine()) != null)   {
-			
-			strLine = strLine.trim();
-			
-			if (strLine.startsWith("#")){
-				strLine = strLine.replaceAll("#(\\s)+", "#");
-				strLine = strLine.replaceAll("#(\\t)+", "#");
-			}
-			
-			if (strLine.trim().startsWith("#if") || strLine.trim().startsWith("#elif")){
-				
-				strLine = strLine.replaceAll("(?:/\\*(?:[^*]|(?:\\*+[^*/]))*\\*+/)|(?://.*)","");
-				
-				String directive = strLine.replace("#ifdef", "").replace("#ifndef", "").replace("#if", "");
-				directive = directive.replace("defined", "").replace("(", "").replace(")", "");
-				directive = directive.replace("||", "").replace("&&", "").replace("!", "").replace("<", "").replace(">", "").replace("=", "");
-				
-				String[] directivesStr = directive.split(" ");
-				
-				for (int i = 0; i < directivesStr.length; i++){
-					if (!directives.contains(directivesStr[i].trim()) && !directivesStr[i].trim().equals("") && this.isValidJavaIdentifier(directivesStr[i].trim())){
-						directives.add(directivesStr[i].trim());
-					}
-				}
-			}
-			
-			if (strLine.startsWith("#")){
-				strLine = strLine.replaceAll("#(\\s)+", "#");
-				strLine = strLine.replaceAll("#(\\t)+", "#");
-				if (strLine.startsWith("#define")){
-					String[] parts = strLine.split(" ");
-					if (parts.length == 3){
-						parts[1] = parts[1].trim();
-						directives.remove(parts[1]);
-					}
-				}
-			}
-			
+		return new ArrayList<String>(this.getDirectiveSet(file));
+	}
+	
+	/**
+	 * <p>The macros the conditionals (#if, #ifdef, #ifndef, #elif) of a C file test, in order of first use, read in
+	 * one pass by {@link DirectiveLexer} (continuations and comments spanning lines included). A macro given a value
+	 * by an object-like "#define NAME value" is local to the file and dropped until a later conditional uses it
+	 * again.</p>
+	 * <p>Files are lexed once: the result comes from the shared {@link DirectiveIndex}, keyed by content hash and
+	 * persisted across runs. With an include path (see {@link #setIncludePath}) the macros of the headers the file
+	 * includes are added after its own, through the shared {@link IncludeClosure}.</p>
+	 * @param file C ļ
+	 * @return the macros, without duplicates
+	 */
+	public LinkedHashSet<String> getDirectiveSet(File file) throws Exception{
+		if (this.includePath != null){
+			return IncludeClosure.forPath(this.includePath).getDirectives(file);
 		}
-		
-		String fileName = file.getName().toUpperCase() + "_H";
-		directives.remove(fileName);
-		
-		in.close();
-		return directives;
+		return DirectiveIndex.getDefault().getDirectives(file);
+	}
+	
+	/**
+	 * <p>Resolves the #include directives of the sampled files against an include path, so headers add their macros
+	 * (see {@link IncludeClosure}); null, the default, samples each file on its own macros.</p>
+	 * @param includePath directories searched in order, or null
+	 */
+	public void setIncludePath(List<File> includePath){
+		this.includePath = includePath;
+	}
+	
+	public List<File> getIncludePath(){
+		return includePath;
 	}
 	
 	/**
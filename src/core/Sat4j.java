@@ -1,19 +1,9 @@
 package core;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-
-import org.sat4j.core.VecInt;
-import org.sat4j.minisat.SolverFactory;
-import org.sat4j.reader.DimacsReader;
-import org.sat4j.reader.Reader;
-import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.IProblem;
-import org.sat4j.specs.ISolver;
+import java.util.Map;
 
 /***
  * <p>Sat4j  sat4j ⣬ṩ˴Լ One-enabled ({@link#getOneEnabled})One-disabled ({@link#getOneDisabled}) ķʵ֡</p>
@@ -22,6 +12,115 @@ import org.sat4j.specs.ISolver;
  */
 public class Sat4j {
 
+	private Sat4jSession.Strategy strategy = Sat4jSession.Strategy.LINEAR;
+	private int threads = 1;
+	private boolean reuseModels = false;
+	private boolean useBackbone = false;
+	private SolverBudget budget = SolverBudget.UNLIMITED;
+	private String solverName = null;
+	private boolean warmStart = false;
+	private boolean orderFeatures = false;
+	private final QueryStats stats = new QueryStats();
+	private final Map<String, Sat4jSessionPool> pools = new HashMap<String, Sat4jSessionPool>();
+	
+	public Sat4j() {
+	}
+	
+	/***
+	 * <p>ʹøĻŻ ( {@link Sat4jSession.Strategy})  most-enabled / most-disabled ϡ</p>
+	 * @param strategy Ż
+	 */
+	public Sat4j(Sat4jSession.Strategy strategy) {
+		this.strategy = strategy;
+	}
+	
+	/***
+	 * <p>threads  1 ʱOne-enabled / One-disabled ̳߳ϲ ( {@link Sat4jSessionPool})˳򲻱䡣
+	 * ÿ CNF ļ̳߳ؼỰڱĸεü临ãֱ {@link #close()}</p>
+	 * @param strategy Ż
+	 * @param threads ߳
+	 */
+	public Sat4j(Sat4jSession.Strategy strategy, int threads) {
+		this.strategy = strategy;
+		this.threads = threads;
+	}
+	
+	/***
+	 * <p>One-enabled / One-disabled ȼҵǷ㵱ǰ ( {@link Sat4jSession#setReuseModels})</p>
+	 * @param reuseModels Ƿģ
+	 */
+	public void setReuseModels(boolean reuseModels) {
+		this.reuseModels = reuseModels;
+	}
+	
+	/***
+	 * <p>ȼ (ȡ) / ( {@link FeatureModelBackbone})Ĳѯֱ</p>
+	 * @param useBackbone Ƿʹ backbone
+	 */
+	public void setUseBackbone(boolean useBackbone) {
+		this.useBackbone = useBackbone;
+	}
+
+	/***
+	 * <p>ÿβѯԤ (ʱ䡢ͻ {@link SolverBudget})ԤʱĿǰҵϡ</p>
+	 * @param budget ѯԤ
+	 */
+	public void setBudget(SolverBudget budget) {
+		this.budget = budget;
+	}
+	
+	/***
+	 * <p> sat4j  ( "Glucose21")δ (null) ʱʹ {@link Sat4jPortfolio#getFastestSolver} ѡãûоټ¼ʱΪĬá</p>
+	 * @param solverName ƣnull ʾԶѡ
+	 */
+	public void setSolverName(String solverName) {
+		this.solverName = solverName;
+	}
+	
+	/***
+	 * <p>һ most-enabled ŽΪһβѯĳʼλ ( {@link Sat4jSession#setWarmStart})</p>
+	 * @param warmStart Ƿ
+	 */
+	public void setWarmStart(boolean warmStart) {
+		this.warmStart = warmStart;
+	}
+	
+	/***
+	 * <p>One-enabled / One-disabled ԼͼĹ˳ڲѯƣ԰˳򷵻ء</p>
+	 * @param orderFeatures Ƿ
+	 */
+	public void setOrderFeatures(boolean orderFeatures) {
+		this.orderFeatures = orderFeatures;
+	}
+	
+	/***
+	 * <p>вѯͳϢ֮ (ʱ䡢ʱ䡢ͻ)ÿηµĶ</p>
+	 * @return ͳϢ
+	 */
+	public QueryStats getStats() {
+		QueryStats total = new QueryStats();
+		total.add(this.stats);
+		synchronized (this.pools){
+			for (Sat4jSessionPool pool : this.pools.values()){
+				total.add(pool.getStats());
+			}
+		}
+		return total;
+	}
+	
+	/***
+	 * <p>رղ̳߳ ( {@link Sat4jSessionPool#close()})֮Ĳвѯ½̳߳ء</p>
+	 */
+	public void close() {
+		synchronized (this.pools){
+			for (Sat4jSessionPool pool : this.pools.values()){
+				this.stats.add(pool.getStats());
+				pool.close();
+			}
+			this.pools.clear();
+		}
+	}
+
 	/***
 	 * <p> OneEnabled 㷨 SAT Ӵ CNF ԼģΪٵϡעÿһᱻΪһΡ</p>
 	 * @param file CNF ļ
@@ -29,14 +128,20 @@ public class Sat4j {
 	 * @throws Exception
 	 */
 	public List<List<String>> getOneEnabled(String file) throws Exception {
-		List<List<String>> configurations = new ArrayList<List<String>>();
-		for (int i = 1; i < getNumberOfFeaturesInDimac(file); i++){ // CNF  size 
-			int[] clause = {i};
-			List<String> configuration = this.getMostDisabled(file, clause); // Լ£disabled 
-			configurations.add(configuration);
-		}	
-		
-		return configurations;
+		if (this.threads > 1){
+			Sat4jSessionPool pool = this.getPool(file);
+			pool.setReuseModels(this.reuseModels);
+			pool.setBackbone(this.getBackbone(file));
+			pool.setBudget(this.budget);
+			pool.setSolverName(this.getSolverName(file));
+			pool.setWarmStart(this.warmStart);
+			pool.setOrderFeatures(this.orderFeatures);
+			return pool.getOneEnabled();
+		}
+		Sat4jSession session = this.newSession(file); // ֻһ CNF ļÿΪһ
+		session.setReuseModels(this.reuseModels);
+		session.setBackbone(this.getBackbone(file));
+		return this.finish(session, session.getOneEnabled());
 	}
 	
 	/***
@@ -46,140 +151,59 @@ public class Sat4j {
 	 * @throws Exception
 	 */
 	public List<List<String>> getOneDisabled(String file) throws Exception {
-		List<List<String>> configurations = new ArrayList<List<String>>();
-		for (int i = 1; i < getNumberOfFeaturesInDimac(file); i++){
-			int[] clause = {(-1)*i};
-			List<String> configuration = this.getMostEnabled(file, clause);
-			configurations.add(configuration);
-		}	
-		
-		return configurations;
+		if (this.threads > 1){
+			Sat4jSessionPool pool = this.getPool(file);
+			pool.setReuseModels(this.reuseModels);
+			pool.setBackbone(this.getBackbone(file));
+			pool.setBudget(this.budget);
+			pool.setSolverName(this.getSolverName(file));
+			pool.setWarmStart(this.warmStart);
+			pool.setOrderFeatures(this.orderFeatures);
+			return pool.getOneDisabled();
+		}
+		Sat4jSession session = this.newSession(file);
+		session.setReuseModels(this.reuseModels);
+		session.setBackbone(this.getBackbone(file));
+		return this.finish(session, session.getOneDisabled());
+	}
+	
+	/***
+	 * <p>ֻ directives е One-enabledͶӰ directives ϣϻ ( {@link DirectiveScopedSat4j})
+	 * ѯʹñ (ԡԤ㡢backboneģ͸)ͳϢ {@link #getStats()}</p>
+	 * @param file CNF ļ
+	 * @param directives Դļе
+	 * @return 
+	 * @throws Exception
+	 */
+	public List<List<String>> getOneEnabled(String file, Collection<String> directives) throws Exception {
+		return DirectiveScopedSat4j.forFile(file).getOneEnabled(directives, this);
+	}
+	
+	/***
+	 * <p>ֻ directives е One-disabledͶӰ directives ϣϻ ( {@link DirectiveScopedSat4j})
+	 * ͳϢͬ {@link #getOneEnabled(String, Collection)}</p>
+	 * @param file CNF ļ
+	 * @param directives Դļе
+	 * @return 
+	 * @throws Exception
+	 */
+	public List<List<String>> getOneDisabled(String file, Collection<String> directives) throws Exception {
+		return DirectiveScopedSat4j.forFile(file).getOneDisabled(directives, this);
 	}
 	
 	public List<String> getMostEnabled(String file) throws Exception {
-		List<String> configuration = new ArrayList<String>();
-		ISolver solver = SolverFactory.newDefault();
-		Reader reader = new DimacsReader ( solver );
-		
-		IProblem problem = reader.parseInstance(file);
-		
-		for (int j = (problem.nVars()-1); j > 0; j--){
-			solver = SolverFactory.newDefault();
-			reader = new DimacsReader ( solver );
-			
-			problem = reader.parseInstance(file);
-			
-			VecInt v = new VecInt();
-			for (int i = 1; i < problem.nVars(); i++){
-				v.push(i);
-			}
-			
-			try {
-				solver.addAtLeast(v, j);
-				if ( problem.isSatisfiable(false)) {
-					int[] model = problem.findModel();
-					
-					for (int i = 1; i <model.length; i++){
-						String featureName = this.getVarNameInDimacs(file, i);
-						if (model[i] < 0){
-							configuration.add("!" + featureName);
-						} else {
-							configuration.add(featureName);
-						}
-					}
-					
-					break;
-				}
-			} catch (ContradictionException e){
-				System.out.println("Not possible to find configuration with at least " + j + " features enabled..");
-			}
-		}
-		
-		return configuration;
+		Sat4jSession session = this.newSession(file);
+		return this.finish(session, session.getMostEnabled());
 	}
 	
 	public List<String> getMostEnabled(String file, int[] clause) throws Exception {
-		List<String> configuration = new ArrayList<String>();
-		ISolver solver = SolverFactory.newDefault();
-		Reader reader = new DimacsReader ( solver );
-		
-		IProblem problem = reader.parseInstance(file);
-		
-		for (int j = (problem.nVars()-1); j > 0; j--){
-			solver = SolverFactory.newDefault();
-			reader = new DimacsReader ( solver );
-			
-			problem = reader.parseInstance(file);
-			
-			VecInt v = new VecInt();
-			for (int i = 1; i < problem.nVars(); i++){
-				v.push(i);
-			}
-			
-			try {
-				solver.addAtLeast(v, (j-1));
-				solver.addClause(new VecInt(clause));	
-				if ( problem.isSatisfiable(false)) {
-					int[] model = problem.findModel();
-					
-					for (int i = 1; i <model.length; i++){
-						String featureName = this.getVarNameInDimacs(file, i);
-						if (model[i] < 0){
-							configuration.add("!" + featureName);
-						} else {
-							configuration.add(featureName);
-						}
-					}
-					
-					break;
-				}
-			} catch (ContradictionException e){
-				System.out.println("Not possible to find configuration with at least " + j + " features enabled..");
-			}
-		}
-		
-		return configuration;
+		Sat4jSession session = this.newSession(file);
+		return this.finish(session, session.getMostEnabled(clause));
 	}
 	
 	public List<String> getMostDisabled(String file) throws Exception {
-		List<String> configuration = new ArrayList<String>();
-		ISolver solver = SolverFactory.newDefault();
-		Reader reader = new DimacsReader ( solver );
-		
-		IProblem problem = reader.parseInstance(file);
-		
-		for (int j = 1; j < problem.nVars(); j++){
-			solver = SolverFactory.newDefault();
-			reader = new DimacsReader ( solver );
-			
-			problem = reader.parseInstance(file);
-			
-			VecInt v = new VecInt();
-			for (int i = 1; i < problem.nVars(); i++){
-				v.push(i);
-			}
-			try {
-				solver.addAtMost(v, j);
-				if ( problem.isSatisfiable(false)) {
-					int[] model = problem.findModel();
-					
-					for (int i = 1; i <model.length; i++){
-						String featureName = this.getVarNameInDimacs(file, i);
-						if (model[i] < 0){
-							configuration.add("!" + featureName);
-						} else {
-							configuration.add(featureName);
-						}
-					}
-					
-					break;
-				}
-			} catch (ContradictionException e){
-				System.out.println("Not possible to find configuration with at least " + j + " features disabled..");
-			}
-		}
-		
-		return configuration;
+		Sat4jSession session = this.newSession(file);
+		return this.finish(session, session.getMostDisabled());
 	}
 	
 	/***
@@ -190,47 +214,63 @@ public class Sat4j {
 	 * @throws Exception
 	 */
 	public List<String> getMostDisabled(String file, int[] clause) throws Exception {
-		List<String> configuration = new ArrayList<String>();
-		ISolver solver = SolverFactory.newDefault(); // ISolver 
-		Reader reader = new DimacsReader ( solver );
-		
-		IProblem problem = reader.parseInstance(file); //  IProblem 
-		
-		for (int j = 1; j < problem.nVars(); j++){ //  IProblem 
-			solver = SolverFactory.newDefault();
-			reader = new DimacsReader (solver);
-			
-			problem = reader.parseInstance(file);
-			
-			VecInt v = new VecInt();
-			for (int i = 1; i < problem.nVars(); i++){
-				v.push(i);
-			}
-			
-			try {
-				solver.addAtMost(v, (j+1)); //  j+1 
-				solver.addClause(new VecInt(clause));	//  clause еǸΪ
-				
-				if ( problem.isSatisfiable(false)) {
-					int[] model = problem.findModel();
-					
-					for (int i = 1; i <model.length; i++){
-						String featureName = this.getVarNameInDimacs(file, i);
-						if (model[i] < 0){
-							configuration.add("!" + featureName);
-						} else {
-							configuration.add(featureName);
-						}
-					}
-					
-					break;
-				}
-			} catch (ContradictionException e){
-				System.out.println("Not possible to find configuration with at least " + j + " features disabled..");
+		Sat4jSession session = this.newSession(file);
+		return this.finish(session, session.getMostDisabled(clause));
+	}
+	
+	private Sat4jSession newSession(String file) throws Exception {
+		Sat4jSession session = new Sat4jSession(file, this.strategy, this.getSolverName(file));
+		session.setBudget(this.budget);
+		session.setWarmStart(this.warmStart);
+		session.setOrderFeatures(this.orderFeatures);
+		return session;
+	}
+	
+	/***
+	 * <p>ѱӦõһеĻỰ ( {@link DirectiveScopedSat4j})</p>
+	 */
+	void configure(Sat4jSession session, String file) throws Exception {
+		session.setStrategy(this.strategy);
+		session.setReuseModels(this.reuseModels);
+		session.setBackbone(this.getBackbone(file));
+		session.setBudget(this.budget);
+		session.setWarmStart(this.warmStart);
+		session.setOrderFeatures(this.orderFeatures);
+	}
+	
+	/***
+	 * <p>ỰΪɵĲѯͳϢ</p>
+	 */
+	void addStats(QueryStats stats) {
+		this.stats.add(stats);
+	}
+	
+	Sat4jSession.Strategy getStrategy() {
+		return this.strategy;
+	}
+	
+	private Sat4jSessionPool getPool(String file) {
+		synchronized (this.pools){
+			Sat4jSessionPool pool = this.pools.get(file);
+			if (pool == null){
+				pool = new Sat4jSessionPool(file, this.threads, this.strategy);
+				this.pools.put(file, pool);
 			}
+			return pool;
 		}
-		
-		return configuration;
+	}
+	
+	String getSolverName(String file) {
+		return (this.solverName != null) ? this.solverName : Sat4jPortfolio.getFastestSolver(file);
+	}
+	
+	private <T> T finish(Sat4jSession session, T result) {
+		this.stats.add(session.getStats());
+		return result;
+	}
+	
+	private FeatureModelBackbone getBackbone(String file) throws Exception {
+		return this.useBackbone ? FeatureModelBackbone.forFile(file) : null;
 	}
 	
 	/***
@@ -241,18 +281,7 @@ public class Sat4j {
 	 * @throws Exception
 	 */
 	public String getVarNameInDimacs(String dimacs, int id) throws Exception {
-		FileInputStream fis = new FileInputStream(new File(dimacs));
-		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-		String line = null;
-		while ((line = br.readLine()) != null) {
-			if (line.startsWith("c " + id)){
-				br.close();
-				return line.split(" ")[2];
-			}
-		}
-	 
-		br.close();
-		return null;
+		return DimacsSymbolTable.forFile(dimacs).getName(id); // űÿ CNF ļֻһΣ id ȷƥ
 	}
 	
 	/***
@@ -262,17 +291,7 @@ public class Sat4j {
 	 * @throws Exception
 	 */
 	public int getNumberOfFeaturesInDimac(String file) throws Exception {
-		int numberOfFeatures = 0;
-		FileInputStream fis = new FileInputStream(file);
-		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-		String line = null;
-		while ((line = br.readLine()) != null) {
-			if (line.startsWith("p cnf")){
-				numberOfFeatures = new Integer(line.split(" ")[2]); // cnf ļһеĵ 3 ԪģͰĽڵĸ
-			}
-		}
-		br.close();
-		return numberOfFeatures;
+		return DimacsSymbolTable.forFile(file).getNumberOfVariables();
 	}
 	
 }
@@ -0,0 +1,236 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * <p>Sat4jPortfolio races differently configured Sat4j solvers on the same most-enabled / most-disabled query.</p>
+ * <p>Every configuration has its own {@link Sat4jSession} (parsed once, reused by later queries) and its own thread.
+ * The first session that proves its answer wins and is returned at once; the others are cancelled
+ * ({@link Sat4jSession#cancel()}) and waited for when the next race starts, so they are idle again before it. Each race appends "&lt;winner&gt; &lt;ms&gt; &lt;query&gt;"
+ * to "&lt;model&gt;.portfolio" next to the model, and {@link #getFastestSolver} picks the configuration that won
+ * most often there, which {@link Sat4j#setSolverName} can use on later runs.</p>
+ */
+public class Sat4jPortfolio {
+
+	/** Configurations raced when none are given: the default solver, Glucose, a light one and one with phase saving. */
+	public static final List<String> DEFAULT_SOLVERS = Arrays.asList(Sat4jSession.DEFAULT_SOLVER, "Glucose21", "Light", "DefaultAutoErasePhaseSaving");
+
+	private final String file;
+	private final List<Sat4jSession> sessions = new ArrayList<Sat4jSession>();
+	private final ExecutorService executor;
+	private List<Future<Sat4jSession>> pending = new ArrayList<Future<Sat4jSession>>();
+	private String lastWinner = null;
+	private long lastMillis = 0;
+
+	public Sat4jPortfolio(String file) throws Exception {
+		this(file, Sat4jSession.Strategy.BINARY, DEFAULT_SOLVERS);
+	}
+
+	/***
+	 * @param file DIMACS file path
+	 * @param strategy cardinality strategy of every session
+	 * @param solverNames Sat4j solver configurations to race
+	 * @throws Exception
+	 */
+	public Sat4jPortfolio(String file, Sat4jSession.Strategy strategy, List<String> solverNames) throws Exception {
+		this.file = file;
+		for (String solverName : solverNames){
+			this.sessions.add(new Sat4jSession(file, strategy, solverName));
+		}
+		this.executor = Executors.newFixedThreadPool(this.sessions.size());
+	}
+
+	public static void main(String[] args) throws Exception {
+		String file = "featureModel/busybox.dimacs";
+		Sat4jPortfolio portfolio = new Sat4jPortfolio(file);
+		try {
+			for (int feature = 1; feature <= 40; feature += 13){
+				int[] model = portfolio.findMostEnabledModel((-1)*feature);
+				System.out.println("Most-enabled without " + feature + ": " + Sat4jSession.countEnabled(model) + " ("
+						+ portfolio.getLastWinner() + ", " + portfolio.getLastMillis() + " ms)");
+			}
+		} finally {
+			portfolio.shutdown();
+		}
+		System.out.println("Fastest solver so far: " + Sat4jPortfolio.getFastestSolver(file));
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/***
+	 * <p>Solver configuration that won the last race (null if every session failed).</p>
+	 */
+	public String getLastWinner() {
+		return lastWinner;
+	}
+
+	public long getLastMillis() {
+		return lastMillis;
+	}
+
+	/***
+	 * <p>Stops the racing threads. The portfolio cannot be used afterwards.</p>
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	public List<String> getMostEnabled(int... assumptions) throws Exception {
+		return this.sessions.get(0).toConfiguration(this.findMostEnabledModel(assumptions));
+	}
+
+	public List<String> getMostDisabled(int... assumptions) throws Exception {
+		return this.sessions.get(0).toConfiguration(this.findMostDisabledModel(assumptions));
+	}
+
+	public int[] findMostEnabledModel(final int... assumptions) throws Exception {
+		return this.race("most-enabled" + Arrays.toString(assumptions), true, assumptions);
+	}
+
+	public int[] findMostDisabledModel(final int... assumptions) throws Exception {
+		return this.race("most-disabled" + Arrays.toString(assumptions), false, assumptions);
+	}
+
+	private synchronized int[] race(String query, final boolean enabled, final int[] assumptions) throws Exception {
+		// The losers of the last race stop at their next decision; wait so no session is still busy..
+		for (Future<Sat4jSession> future : this.pending){
+			try {
+				future.get();
+			} catch (ExecutionException e){
+				// Already reported by the last race..
+			}
+		}
+		long start = System.currentTimeMillis();
+		CompletionService<Sat4jSession> completion = new ExecutorCompletionService<Sat4jSession>(this.executor);
+		List<Future<Sat4jSession>> futures = new ArrayList<Future<Sat4jSession>>();
+		final Map<Sat4jSession, int[]> models = new HashMap<Sat4jSession, int[]>();
+		for (final Sat4jSession session : this.sessions){
+			session.resetCancel();
+			futures.add(completion.submit(new Callable<Sat4jSession>() {
+				@Override
+				public Sat4jSession call() throws Exception {
+					int[] model = enabled ? session.findMostEnabledModel(assumptions) : session.findMostDisabledModel(assumptions);
+					synchronized (models){
+						models.put(session, model);
+					}
+					return session;
+				}
+			}));
+		}
+
+		Sat4jSession winner = null;
+		Exception failure = null;
+		try {
+			for (int i = 0; i < futures.size() && winner == null; i++){
+				try {
+					Sat4jSession session = completion.take().get();
+					// A session stopped by its own budget has no proven answer, wait for another one..
+					if (session.getLastQueryStats().getStatus() != QueryStats.Status.BUDGET_EXHAUSTED){
+						winner = session;
+					}
+				} catch (ExecutionException e){
+					failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+				}
+			}
+		} finally {
+			for (Sat4jSession session : this.sessions){
+				if (session != winner){
+					session.cancel();
+				}
+			}
+			this.pending = futures;
+		}
+
+		this.lastMillis = System.currentTimeMillis() - start;
+		this.lastWinner = (winner == null) ? null : winner.getSolverName();
+		if (winner == null){
+			if (failure != null){
+				throw failure;
+			}
+			return null;
+		}
+		this.log(query);
+		synchronized (models){
+			return models.get(winner);
+		}
+	}
+
+	private void log(String query) {
+		try {
+			PrintWriter writer = new PrintWriter(new FileWriter(Sat4jPortfolio.getLogFile(this.file), true));
+			writer.println(this.lastWinner + " " + this.lastMillis + " " + query.replace(" ", ""));
+			writer.close();
+		} catch (Exception e){
+			System.err.println("Could not log portfolio result: " + e.getMessage());
+		}
+	}
+
+	private static File getLogFile(String file) {
+		return new File(file + ".portfolio");
+	}
+
+	/***
+	 * <p>The configuration that won most races logged for a model (ties go to the lower total time), or
+	 * {@link Sat4jSession#DEFAULT_SOLVER} if nothing was logged yet.</p>
+	 * @param file DIMACS file path
+	 * @return a Sat4j solver name
+	 */
+	public static String getFastestSolver(String file) {
+		File log = Sat4jPortfolio.getLogFile(file);
+		if (!log.exists()){
+			return Sat4jSession.DEFAULT_SOLVER;
+		}
+		Map<String, long[]> wins = new HashMap<String, long[]>(); // name -> {wins, total ms}
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(log)));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				String[] parts = line.trim().split(" ");
+				if (parts.length < 2){
+					continue;
+				}
+				long[] counts = wins.get(parts[0]);
+				if (counts == null){
+					counts = new long[2];
+					wins.put(parts[0], counts);
+				}
+				counts[0]++;
+				counts[1] += Long.parseLong(parts[1]);
+			}
+			br.close();
+		} catch (Exception e){
+			return Sat4jSession.DEFAULT_SOLVER;
+		}
+
+		String fastest = Sat4jSession.DEFAULT_SOLVER;
+		long[] best = null;
+		for (Map.Entry<String, long[]> entry : wins.entrySet()){
+			long[] counts = entry.getValue();
+			if (best == null || counts[0] > best[0] || (counts[0] == best[0] && counts[1] < best[1])){
+				fastest = entry.getKey();
+				best = counts;
+			}
+		}
+		return fastest;
+	}
+
+}
@@ -0,0 +1,1166 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.core.LiteralsUtils;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.minisat.constraints.cnf.UnitClauses;
+import org.sat4j.minisat.core.ICDCL;
+import org.sat4j.minisat.core.ILits;
+import org.sat4j.minisat.core.IOrder;
+import org.sat4j.minisat.core.IPhaseSelectionStrategy;
+import org.sat4j.minisat.core.Solver;
+import org.sat4j.reader.DimacsReader;
+import org.sat4j.reader.Reader;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.ISolverService;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+import org.sat4j.tools.SearchListenerAdapter;
+
+/***
+ * <p>Sat4jSession parses a DIMACS feature model once and keeps one live {@link ISolver} over it.</p>
+ * <p>One-enabled, one-disabled, most-enabled and most-disabled queries are answered with assumptions and
+ * removable cardinality constraints, so the file is never parsed again between queries (see {@link Sat4j}).</p>
+ * <p>The cardinality optimum is searched according to a {@link Strategy}; every query records how many solver
+ * calls it used ({@link #getLastQueryCalls}).</p>
+ * <p>With {@link #setReuseModels} the one-wise queries first look at the models already found: a model that
+ * already enables (disables) the feature is returned if it is proven to have optimal cardinality.</p>
+ * <p>With a {@link FeatureModelBackbone} ({@link #setBackbone}) queries that assume a dead feature enabled or a
+ * core feature disabled return at once, without a solver call.</p>
+ * <p>Every query runs under a {@link SolverBudget} ({@link #setBudget}): when its wall-clock, conflict or call limit
+ * is reached the query returns the best model found so far (a search always starts with one unbounded solver call
+ * that only the wall clock can cut off). Its {@link QueryStats} ({@link #getLastQueryStats})
+ * tell how it ended and what it cost; {@link #getStats} sums them over the session.</p>
+ * <p>{@link #setWarmStart} passes the previous optimum to the next query as phase hints, {@link #setOrderFeatures}
+ * asks one-wise queries in an order where neighbouring queries are similar.</p>
+ */
+public class Sat4jSession {
+
+	/***
+	 * <p>How most-enabled / most-disabled queries search for the cardinality optimum.</p>
+	 */
+	public enum Strategy {
+		/** Walks the bound one step at a time from the far end, as the original implementation did. */
+		LINEAR,
+		/** Starts from the optimum of the previous query and moves the bound one step at a time; bisects when cold. */
+		MODEL_IMPROVING,
+		/** Bisects between a lower bound and the cardinality of the best model found so far. */
+		BINARY
+	}
+
+	public static final String DEFAULT_SOLVER = "Default";
+
+	private final String file;
+	private final String solverName;
+	private volatile ISolver solver;
+	private IVecInt features;
+	private IVecInt negatedFeatures;
+	private int numberOfFeatures;
+	private final DimacsSymbolTable symbols;
+	private Strategy strategy = Strategy.LINEAR;
+	private long solverCalls = 0;
+	private int lastQueryCalls = 0;
+	private int lastMostEnabled = -1;
+	private int lastMostDisabled = -1;
+
+	// Model reuse for the one-wise queries (opt-in, see setReuseModels)..
+	private boolean reuseModels = false;
+	private final List<int[]> oneEnabledModels = new ArrayList<int[]>();
+	private final List<Integer> oneEnabledCounts = new ArrayList<Integer>();
+	private final List<int[]> oneDisabledModels = new ArrayList<int[]>();
+	private final List<Integer> oneDisabledCounts = new ArrayList<Integer>();
+	private int fewestEnabled = -1;
+	private int mostEnabled = -1;
+	private int reusedQueries = 0;
+	private int solvedQueries = 0;
+	private long solvedQueryCalls = 0;
+	private long reuseCheckCalls = 0;
+
+	private FeatureModelBackbone backbone = null;
+	private int skippedQueries = 0;
+
+	private SolverBudget budget = SolverBudget.UNLIMITED;
+	private final QueryStats stats = new QueryStats();
+	private QueryStats lastQueryStats = new QueryStats();
+	private QueryStats queryStats = null;
+	private long queryDeadline = 0;
+	private boolean exhausted = false;
+	private volatile boolean cancelled = false;
+	private final ConflictLimit conflictLimit = new ConflictLimit(this);
+
+	private boolean warmStart = false;
+	private boolean orderFeatures = false;
+	private PhaseHint phaseHint = null;
+	private int[] hintModel = null;
+	private int[] lastMostEnabledModel = null;
+
+	public Sat4jSession(String file) throws Exception {
+		this(file, Strategy.LINEAR);
+	}
+
+	public Sat4jSession(String file, Strategy strategy) throws Exception {
+		this(file, strategy, DEFAULT_SOLVER);
+	}
+
+	/***
+	 * @param file DIMACS file path
+	 * @param strategy cardinality strategy
+	 * @param solverName a Sat4j solver configuration, as listed by {@code SolverFactory.instance().solverNames()}
+	 * @throws Exception
+	 */
+	public Sat4jSession(String file, Strategy strategy, String solverName) throws Exception {
+		this.file = file;
+		this.strategy = strategy;
+		this.solverName = (solverName == null) ? DEFAULT_SOLVER : solverName;
+		this.load();
+		this.symbols = DimacsSymbolTable.forFile(file);
+	}
+
+	public static void main(String[] args) throws Exception {
+		for (Strategy strategy : Strategy.values()){
+			Sat4jSession session = new Sat4jSession("featureModel/busybox.dimacs", strategy);
+			long start = System.currentTimeMillis();
+			int enabled = countEnabled(session.findMostEnabledModel());
+			int enabledCalls = session.getLastQueryCalls();
+			int disabled = countEnabled(session.findMostDisabledModel());
+			int disabledCalls = session.getLastQueryCalls();
+			System.out.println(strategy + ": most-enabled " + enabled + " (" + enabledCalls + " calls), most-disabled "
+					+ disabled + " (" + disabledCalls + " calls), " + (System.currentTimeMillis() - start) + " ms");
+		}
+
+		// Warm start against cold solving on one-disabled queries..
+		long[] millis = new long[2];
+		for (int warm = 0; warm < 2; warm++){
+			Sat4jSession session = new Sat4jSession("featureModel/busybox.dimacs", Strategy.MODEL_IMPROVING);
+			session.setWarmStart(warm == 1);
+			long start = System.currentTimeMillis();
+			for (int feature = 1; feature <= 651; feature += 65){
+				session.findOneDisabledModel(feature);
+			}
+			millis[warm] = System.currentTimeMillis() - start;
+		}
+		System.out.println("One-disabled: cold " + millis[0] + " ms, warm " + millis[1] + " ms, speedup "
+				+ String.format("%.2f", (double) millis[0] / Math.max(1, millis[1])));
+
+		// A tight budget stops the most-disabled search early with the best model found so far..
+		Sat4jSession session = new Sat4jSession("featureModel/busybox.dimacs", Strategy.LINEAR);
+		session.setBudget(new SolverBudget(1000, 0, 0));
+		int[] model = session.findMostDisabledModel();
+		System.out.println("Budgeted: " + countEnabled(model) + " enabled, " + session.getLastQueryStats());
+
+		// Even one conflict is enough for a model: the first solver call of a search is not cut off by the limit..
+		session.setBudget(new SolverBudget(0, 1, 0));
+		model = session.findMostDisabledModel();
+		System.out.println("One conflict: " + countEnabled(model) + " enabled, " + session.getLastQueryStats());
+		if (model == null){
+			throw new IllegalStateException("A query cut off by its conflict limit returned no model");
+		}
+		System.out.println("Session: " + session.getStats());
+
+		// LINEAR starts from the bounds that leave no freedom; they must not cost a re-parse..
+		Sat4jSession linear = new Sat4jSession("featureModel/busybox.dimacs", Strategy.LINEAR);
+		for (int feature = 1; feature <= 651; feature += 65){
+			linear.findOneEnabledModel(feature);
+			linear.findOneDisabledModel(feature);
+		}
+		System.out.println("LINEAR: " + linear.getStats());
+		if (linear.getStats().getParses() != 1){
+			throw new IllegalStateException("LINEAR queries parsed the model " + linear.getStats().getParses() + " times");
+		}
+	}
+
+	/***
+	 * <p>(Re)builds the solver from the DIMACS file.</p>
+	 */
+	private void load() throws Exception {
+		long start = System.nanoTime();
+		ISolver solver = SolverFactory.instance().createSolverByName(this.solverName);
+		if (solver == null){
+			throw new IllegalArgumentException("Unknown Sat4j solver: " + this.solverName);
+		}
+		Reader reader = new DimacsReader(solver);
+		reader.parseInstance(this.file);
+		solver.setSearchListener(this.conflictLimit);
+		this.phaseHint = null;
+		if (solver instanceof ICDCL){
+			IOrder order = ((ICDCL<?>) solver).getOrder();
+			this.phaseHint = new PhaseHint(order.getPhaseSelectionStrategy());
+			order.setPhaseSelectionStrategy(this.phaseHint);
+		}
+		this.solver = solver;
+		this.currentStats().addParse(System.nanoTime() - start);
+
+		this.numberOfFeatures = this.solver.nVars();
+		this.features = new VecInt(this.numberOfFeatures);
+		this.negatedFeatures = new VecInt(this.numberOfFeatures);
+		for (int i = 1; i <= this.numberOfFeatures; i++){
+			this.features.push(i);
+			this.negatedFeatures.push((-1)*i);
+		}
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public String getSolverName() {
+		return solverName;
+	}
+
+	public int getNumberOfFeatures() {
+		return numberOfFeatures;
+	}
+
+	public DimacsSymbolTable getSymbols() {
+		return symbols;
+	}
+
+	public String getName(int id) {
+		return symbols.getName(id);
+	}
+
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(Strategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/***
+	 * <p>Number of solver calls used by the last most-enabled / most-disabled query.</p>
+	 */
+	public int getLastQueryCalls() {
+		return lastQueryCalls;
+	}
+
+	/***
+	 * <p>Number of solver calls since the session was created.</p>
+	 */
+	public long getSolverCalls() {
+		return solverCalls;
+	}
+
+	public boolean isReuseModels() {
+		return reuseModels;
+	}
+
+	public void setReuseModels(boolean reuseModels) {
+		this.reuseModels = reuseModels;
+	}
+
+	public FeatureModelBackbone getBackbone() {
+		return backbone;
+	}
+
+	/***
+	 * <p>Sets the backbone used to skip impossible queries (null turns skipping off).</p>
+	 */
+	public void setBackbone(FeatureModelBackbone backbone) {
+		this.backbone = backbone;
+	}
+
+	public SolverBudget getBudget() {
+		return budget;
+	}
+
+	/***
+	 * <p>Sets the limits of every following query ({@link SolverBudget#UNLIMITED} by default).</p>
+	 */
+	public void setBudget(SolverBudget budget) {
+		this.budget = (budget == null) ? SolverBudget.UNLIMITED : budget;
+	}
+
+	/***
+	 * <p>Stats of the last find / get query: status, parse and solve time, conflicts, decisions and calls.</p>
+	 */
+	public QueryStats getLastQueryStats() {
+		return lastQueryStats;
+	}
+
+	/***
+	 * <p>Stats summed over the session, including the initial parse.</p>
+	 */
+	public QueryStats getStats() {
+		return stats;
+	}
+
+	public boolean isOrderFeatures() {
+		return orderFeatures;
+	}
+
+	/***
+	 * <p>Asks one-wise queries in constraint-graph order, see {@link #getQueryOrder()}.</p>
+	 */
+	public void setOrderFeatures(boolean orderFeatures) {
+		this.orderFeatures = orderFeatures;
+	}
+
+	public boolean isWarmStart() {
+		return warmStart;
+	}
+
+	/***
+	 * <p>Starts the solver calls of a most-enabled query from the polarities of the previous most-enabled optimum
+	 * (all features enabled before the first one) instead of Sat4j's cold phases, which disable every feature.
+	 * Most-disabled queries keep the cold phases: they already point at the optimum.</p>
+	 */
+	public void setWarmStart(boolean warmStart) {
+		this.warmStart = warmStart;
+	}
+
+	/***
+	 * <p>Stops the running query from another thread, as if its budget had run out; it returns the best model found
+	 * so far. Cleared by {@link #resetCancel()}, which must be called before the next query (see {@link Sat4jPortfolio}).</p>
+	 * <p>Sat4j re-arms its timeout when a search starts, so a cancel landing between the budget check of a solver
+	 * call and its search is caught twice more: right after the timeout is set, and by the search listener at the
+	 * next decision or conflict.</p>
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		this.solver.expireTimeout();
+	}
+
+	public void resetCancel() {
+		this.cancelled = false;
+	}
+
+	/***
+	 * <p>Number of queries answered from the backbone without a solver call.</p>
+	 */
+	public int getSkippedQueries() {
+		return skippedQueries;
+	}
+
+	/***
+	 * <p>Number of one-wise queries answered with a model found for an earlier feature.</p>
+	 */
+	public int getReusedQueries() {
+		return reusedQueries;
+	}
+
+	/***
+	 * <p>Estimated solver calls saved by model reuse: reused queries times the average calls of a solved query,
+	 * minus the calls spent proving the reused models optimal.</p>
+	 */
+	public long getSavedCalls() {
+		if (this.solvedQueries == 0){
+			return 0;
+		}
+		return Math.round((double) this.solvedQueryCalls / this.solvedQueries * this.reusedQueries) - this.reuseCheckCalls;
+	}
+
+	/***
+	 * <p>One-enabled: for every feature, the configuration with the fewest features enabled that still enables it.</p>
+	 * @return one configuration per feature
+	 * @throws Exception
+	 */
+	public List<List<String>> getOneEnabled() throws Exception {
+		List<List<String>> configurations = this.newConfigurations();
+		for (int i : this.getQueryOrder()){
+			configurations.set(i - 1, this.getOneEnabled(i));
+		}
+		return configurations;
+	}
+
+	/***
+	 * <p>One-disabled: for every feature, the configuration with the most features enabled that still disables it.</p>
+	 * @return one configuration per feature
+	 * @throws Exception
+	 */
+	public List<List<String>> getOneDisabled() throws Exception {
+		List<List<String>> configurations = this.newConfigurations();
+		for (int i : this.getQueryOrder()){
+			configurations.set(i - 1, this.getOneDisabled(i));
+		}
+		return configurations;
+	}
+
+	/***
+	 * <p>A list of one null per feature, filled in query order.</p>
+	 */
+	private List<List<String>> newConfigurations() {
+		List<List<String>> configurations = new ArrayList<List<String>>(this.numberOfFeatures);
+		for (int i = 0; i < this.numberOfFeatures; i++){
+			configurations.add(null);
+		}
+		return configurations;
+	}
+
+	/***
+	 * <p>The order one-wise queries are asked in: feature order, or with {@link #setOrderFeatures} a breadth-first
+	 * walk of the constraint graph (features sharing a clause are neighbours), so consecutive queries are similar
+	 * and warm starts and model reuse pay off more. Results are always returned in feature order.</p>
+	 */
+	public int[] getQueryOrder() throws Exception {
+		if (this.orderFeatures){
+			return Sat4jSession.constraintOrder(this.file, this.numberOfFeatures);
+		}
+		int[] order = new int[this.numberOfFeatures];
+		for (int i = 0; i < order.length; i++){
+			order[i] = i + 1;
+		}
+		return order;
+	}
+
+	/***
+	 * <p>Breadth-first order of the variables over the clauses of a DIMACS file, neighbours in id order.</p>
+	 */
+	static int[] constraintOrder(String file, int numberOfFeatures) throws Exception {
+		List<Set<Integer>> neighbours = new ArrayList<Set<Integer>>(numberOfFeatures + 1);
+		for (int i = 0; i <= numberOfFeatures; i++){
+			neighbours.add(new TreeSet<Integer>());
+		}
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		List<Integer> clause = new ArrayList<Integer>();
+		String line = null;
+		while ((line = br.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("c") || line.startsWith("p")){
+				continue;
+			}
+			for (String token : line.split("\\s+")){
+				int literal = Integer.parseInt(token);
+				if (literal != 0){
+					clause.add(Math.abs(literal));
+					continue;
+				}
+				for (int a : clause){
+					for (int b : clause){
+						if (a != b && a <= numberOfFeatures && b <= numberOfFeatures){
+							neighbours.get(a).add(b);
+						}
+					}
+				}
+				clause.clear();
+			}
+		}
+		br.close();
+
+		int[] order = new int[numberOfFeatures];
+		boolean[] visited = new boolean[numberOfFeatures + 1];
+		int head = 0;
+		int tail = 0;
+		for (int root = 1; root <= numberOfFeatures; root++){
+			if (visited[root]){
+				continue;
+			}
+			visited[root] = true;
+			order[tail++] = root;
+			while (head < tail){
+				for (int next : neighbours.get(order[head++])){
+					if (!visited[next]){
+						visited[next] = true;
+						order[tail++] = next;
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	public List<String> getOneEnabled(int feature) throws Exception {
+		return this.toConfiguration(this.findOneEnabledModel(feature));
+	}
+
+	public List<String> getOneDisabled(int feature) throws Exception {
+		return this.toConfiguration(this.findOneDisabledModel(feature));
+	}
+
+	/***
+	 * <p>The configuration with the most features enabled under the given assumptions.</p>
+	 * @param assumptions DIMACS literals that must hold
+	 * @return the configuration, or an empty list when the assumptions are unsatisfiable
+	 * @throws Exception
+	 */
+	public List<String> getMostEnabled(int... assumptions) throws Exception {
+		return this.toConfiguration(this.findMostEnabledModel(assumptions));
+	}
+
+	/***
+	 * <p>The configuration with the fewest features enabled under the given assumptions.</p>
+	 * @param assumptions DIMACS literals that must hold
+	 * @return the configuration, or an empty list when the assumptions are unsatisfiable
+	 * @throws Exception
+	 */
+	public List<String> getMostDisabled(int... assumptions) throws Exception {
+		return this.toConfiguration(this.findMostDisabledModel(assumptions));
+	}
+
+	/***
+	 * <p>The fewest-enabled model that enables <i>feature</i>.</p>
+	 * <p>With model reuse, the smallest earlier model that already enables the feature is tried first: one call
+	 * with a bound just below its cardinality either proves it optimal or yields a better starting model.</p>
+	 */
+	public int[] findOneEnabledModel(int feature) throws Exception {
+		this.beginQuery();
+		int[] model = null;
+		try {
+			model = this.oneEnabledModel(feature);
+			return model;
+		} finally {
+			this.endQuery(model);
+		}
+	}
+
+	private int[] oneEnabledModel(int feature) throws Exception {
+		if (!this.reuseModels || this.isImpossible(feature)){
+			return this.mostDisabledModel(feature);
+		}
+		if (this.fewestEnabled < 0){
+			int[] fewest = this.mostDisabledModel();
+			if (!this.exhausted){
+				this.fewestEnabled = countEnabled(fewest);
+			}
+		}
+
+		int[] candidate = null;
+		int count = 0;
+		for (int m = 0; m < this.oneEnabledModels.size(); m++){
+			int[] model = this.oneEnabledModels.get(m);
+			if (valueOf(model, feature) && (candidate == null || this.oneEnabledCounts.get(m) < count)){
+				candidate = model;
+				count = this.oneEnabledCounts.get(m);
+			}
+		}
+
+		long calls = this.solverCalls;
+		int[] model = null;
+		if (candidate != null){
+			if (count <= this.fewestEnabled){
+				this.reusedQueries++;
+				this.lastQueryCalls = 0;
+				return candidate;
+			}
+			int[] better = this.solveWithAtMost(count - 1, feature);
+			if (better == null){
+				this.reusedQueries++;
+				this.reuseCheckCalls += this.solverCalls - calls;
+				this.lastQueryCalls = (int) (this.solverCalls - calls);
+				return candidate;
+			}
+			model = this.minimise(better, calls, feature);
+		} else {
+			model = this.mostDisabledModel(feature);
+		}
+		this.solvedQueries++;
+		this.solvedQueryCalls += this.solverCalls - calls;
+		if (model != null){
+			this.oneEnabledModels.add(model);
+			this.oneEnabledCounts.add(countEnabled(model));
+		}
+		return model;
+	}
+
+	/***
+	 * <p>The most-enabled model that disables <i>feature</i>, reusing an earlier model when model reuse is on
+	 * (see {@link #findOneEnabledModel}).</p>
+	 */
+	public int[] findOneDisabledModel(int feature) throws Exception {
+		this.beginQuery();
+		int[] model = null;
+		try {
+			model = this.oneDisabledModel(feature);
+			return model;
+		} finally {
+			this.endQuery(model);
+		}
+	}
+
+	private int[] oneDisabledModel(int feature) throws Exception {
+		if (!this.reuseModels || this.isImpossible((-1)*feature)){
+			return this.mostEnabledModel((-1)*feature);
+		}
+		if (this.mostEnabled < 0){
+			int[] most = this.mostEnabledModel();
+			if (!this.exhausted){
+				this.mostEnabled = countEnabled(most);
+			}
+		}
+
+		int[] candidate = null;
+		int count = 0;
+		for (int m = 0; m < this.oneDisabledModels.size(); m++){
+			int[] model = this.oneDisabledModels.get(m);
+			if (!valueOf(model, feature) && (candidate == null || this.oneDisabledCounts.get(m) > count)){
+				candidate = model;
+				count = this.oneDisabledCounts.get(m);
+			}
+		}
+
+		long calls = this.solverCalls;
+		int[] model = null;
+		if (candidate != null){
+			if (count >= this.mostEnabled){
+				this.reusedQueries++;
+				this.lastQueryCalls = 0;
+				return candidate;
+			}
+			int[] better = this.solveWithAtLeast(count + 1, (-1)*feature);
+			if (better == null){
+				this.reusedQueries++;
+				this.reuseCheckCalls += this.solverCalls - calls;
+				this.lastQueryCalls = (int) (this.solverCalls - calls);
+				return candidate;
+			}
+			model = this.maximise(better, calls, (-1)*feature);
+		} else {
+			model = this.mostEnabledModel((-1)*feature);
+		}
+		this.solvedQueries++;
+		this.solvedQueryCalls += this.solverCalls - calls;
+		if (model != null){
+			this.oneDisabledModels.add(model);
+			this.oneDisabledCounts.add(countEnabled(model));
+		}
+		return model;
+	}
+
+	public int[] findMostEnabledModel(int... assumptions) throws Exception {
+		this.beginQuery();
+		int[] model = null;
+		try {
+			model = this.mostEnabledModel(assumptions);
+			return model;
+		} finally {
+			this.endQuery(model);
+		}
+	}
+
+	public int[] findMostDisabledModel(int... assumptions) throws Exception {
+		this.beginQuery();
+		int[] model = null;
+		try {
+			model = this.mostDisabledModel(assumptions);
+			return model;
+		} finally {
+			this.endQuery(model);
+		}
+	}
+
+	private int[] mostEnabledModel(int... assumptions) throws Exception {
+		long calls = this.solverCalls;
+		this.hintModel = (this.lastMostEnabledModel != null) ? this.lastMostEnabledModel : this.allEnabled();
+		if (this.isImpossible(assumptions)){
+			this.skippedQueries++;
+			this.lastQueryCalls = 0;
+			return null;
+		}
+		int[] seed = this.seed(assumptions);
+		if (this.strategy == Strategy.LINEAR){
+			// The walk still asks the bound the seed meets, so it answers as it would alone; the seed is the fallback..
+			int[] model = null;
+			for (int j = this.numberOfFeatures; seed != null && j >= countEnabled(seed) && model == null && !this.exhausted; j--){
+				model = this.solveWithAtLeast(j, assumptions);
+			}
+			return this.finishMostEnabled((model != null) ? model : seed, calls);
+		}
+		return this.maximise(seed, calls, assumptions);
+	}
+
+	private int[] mostDisabledModel(int... assumptions) throws Exception {
+		long calls = this.solverCalls;
+		this.hintModel = null; // Sat4j's cold phases (every feature disabled) already point at the optimum..
+		if (this.isImpossible(assumptions)){
+			this.skippedQueries++;
+			this.lastQueryCalls = 0;
+			return null;
+		}
+		int[] seed = this.seed(assumptions);
+		if (this.strategy == Strategy.LINEAR){
+			int[] model = null;
+			for (int j = 0; seed != null && j <= countEnabled(seed) && model == null && !this.exhausted; j++){
+				model = this.solveWithAtMost(j, assumptions);
+			}
+			return this.finishMostDisabled((model != null) ? model : seed, calls);
+		}
+		return this.minimise(seed, calls, assumptions);
+	}
+
+	/***
+	 * <p>The first model of a most-enabled / most-disabled search, solved without a cardinality bound. Only the
+	 * wall-clock limit and {@link #cancel()} stop it, not the conflict or call limit, so a query cut off by those
+	 * still returns a model.</p>
+	 */
+	private int[] seed(int... assumptions) throws Exception {
+		SolverBudget budget = this.budget;
+		this.budget = new SolverBudget(budget.getTimeoutMillis(), 0, 0);
+		try {
+			return this.solve(assumptions);
+		} finally {
+			this.budget = budget;
+		}
+	}
+
+	/***
+	 * <p>Starts the stats and the budget of a query.</p>
+	 */
+	private void beginQuery() {
+		this.queryStats = new QueryStats();
+		this.exhausted = false;
+		this.queryDeadline = 0;
+		if (this.budget.getTimeoutMillis() > 0){
+			this.queryDeadline = System.currentTimeMillis() + this.budget.getTimeoutMillis();
+		}
+	}
+
+	private void endQuery(int[] model) {
+		if (this.exhausted){
+			this.queryStats.setStatus(QueryStats.Status.BUDGET_EXHAUSTED);
+		} else if (model == null){
+			this.queryStats.setStatus(QueryStats.Status.UNSATISFIABLE);
+		} else {
+			this.queryStats.setStatus(QueryStats.Status.OPTIMAL);
+		}
+		this.queryStats.countQuery();
+		this.stats.add(this.queryStats);
+		this.lastQueryStats = this.queryStats;
+		this.queryStats = null;
+	}
+
+	/***
+	 * <p>The stats solver work is charged to: the running query's, else the session's.</p>
+	 */
+	private QueryStats currentStats() {
+		return (this.queryStats != null) ? this.queryStats : this.stats;
+	}
+
+	/***
+	 * <p>Whether the running query has used up its budget (always false outside a query).</p>
+	 */
+	private boolean isBudgetExhausted() {
+		if (this.queryStats == null || this.exhausted){
+			return this.exhausted;
+		}
+		if (this.cancelled){
+			this.exhausted = true;
+		} else if (this.budget.getMaxCalls() > 0 && this.queryStats.getCalls() >= this.budget.getMaxCalls()){
+			this.exhausted = true;
+		} else if (this.budget.getMaxConflicts() > 0 && this.queryStats.getConflicts() >= this.budget.getMaxConflicts()){
+			this.exhausted = true;
+		} else if (this.queryDeadline > 0 && System.currentTimeMillis() >= this.queryDeadline){
+			this.exhausted = true;
+		}
+		return this.exhausted;
+	}
+
+	private int[] allEnabled() {
+		int[] model = new int[this.numberOfFeatures];
+		for (int i = 0; i < model.length; i++){
+			model[i] = i + 1;
+		}
+		return model;
+	}
+
+	private boolean isImpossible(int... assumptions) {
+		return this.backbone != null && this.backbone.isImpossible(assumptions);
+	}
+
+	/***
+	 * <p>Raises the number of enabled features, starting from <i>model</i>, until no better model exists.</p>
+	 * @param model a model under the assumptions (null if there is none)
+	 * @param calls solver calls counted before the query started
+	 */
+	private int[] maximise(int[] model, long calls, int... assumptions) throws Exception {
+		int low = countEnabled(model);
+		int high = this.numberOfFeatures - countDisabled(assumptions);
+		boolean bisect = this.strategy != Strategy.MODEL_IMPROVING || this.lastMostEnabled < 0;
+		boolean fromAbove = false;
+		if (model != null && !bisect && this.lastMostEnabled > low && this.lastMostEnabled <= high){
+			int[] better = this.solveWithAtLeast(this.lastMostEnabled, assumptions);
+			if (better != null){
+				model = better;
+				low = countEnabled(better);
+			} else {
+				// The previous optimum is out of reach, so the optimum is the first bound below it that works..
+				high = this.lastMostEnabled - 1;
+				fromAbove = true;
+			}
+		}
+		while (model != null && low < high && !this.exhausted){
+			// Binary asks for the middle of the gap, model-improving for one step past the best bound so far..
+			int bound = bisect ? (low + high + 1) / 2 : (fromAbove ? high : low + 1);
+			int[] better = this.solveWithAtLeast(bound, assumptions);
+			if (better != null){
+				model = better;
+				low = countEnabled(better);
+			} else {
+				high = bound - 1;
+			}
+		}
+		return this.finishMostEnabled(model, calls);
+	}
+
+	/***
+	 * <p>Lowers the number of enabled features, starting from <i>model</i>, until no better model exists.</p>
+	 * @param model a model under the assumptions (null if there is none)
+	 * @param calls solver calls counted before the query started
+	 */
+	private int[] minimise(int[] model, long calls, int... assumptions) throws Exception {
+		int low = countEnabled(assumptions);
+		int high = countEnabled(model);
+		boolean bisect = this.strategy != Strategy.MODEL_IMPROVING || this.lastMostDisabled < 0;
+		boolean fromBelow = false;
+		if (model != null && !bisect && this.lastMostDisabled >= low && this.lastMostDisabled < high){
+			int[] better = this.solveWithAtMost(this.lastMostDisabled, assumptions);
+			if (better != null){
+				model = better;
+				high = countEnabled(better);
+			} else {
+				low = this.lastMostDisabled + 1;
+				fromBelow = true;
+			}
+		}
+		while (model != null && low < high && !this.exhausted){
+			int bound = bisect ? (low + high) / 2 : (fromBelow ? low : high - 1);
+			int[] better = this.solveWithAtMost(bound, assumptions);
+			if (better != null){
+				model = better;
+				high = countEnabled(better);
+			} else {
+				low = bound + 1;
+			}
+		}
+		return this.finishMostDisabled(model, calls);
+	}
+
+	private int[] finishMostEnabled(int[] model, long calls) {
+		this.lastQueryCalls = (int) (this.solverCalls - calls);
+		this.hintModel = null;
+		if (model != null && !this.exhausted){ // a cut-off search is no hint..
+			this.lastMostEnabled = countEnabled(model);
+			this.lastMostEnabledModel = model;
+		}
+		return model;
+	}
+
+	private int[] finishMostDisabled(int[] model, long calls) {
+		this.lastQueryCalls = (int) (this.solverCalls - calls);
+		this.hintModel = null;
+		if (model != null && !this.exhausted){
+			this.lastMostDisabled = countEnabled(model);
+		}
+		return model;
+	}
+
+	/***
+	 * <p>Solves under the assumptions with at least <i>degree</i> features enabled.</p>
+	 * @return the model, or null if there is none
+	 */
+	public int[] solveWithAtLeast(int degree, int... assumptions) throws Exception {
+		if (degree <= 0 || this.isBudgetExhausted()){
+			return this.solve(assumptions);
+		}
+		return this.solveWithCardinality(this.features, degree, assumptions);
+	}
+
+	/***
+	 * <p>Solves under the assumptions with at most <i>degree</i> features enabled.</p>
+	 * @return the model, or null if there is none
+	 */
+	public int[] solveWithAtMost(int degree, int... assumptions) throws Exception {
+		if (degree >= this.numberOfFeatures || this.isBudgetExhausted()){
+			return this.solve(assumptions);
+		}
+		// At most degree enabled is at least n - degree disabled, which is how Sat4j stores it anyway..
+		return this.solveWithCardinality(this.negatedFeatures, this.numberOfFeatures - degree, assumptions);
+	}
+
+	/***
+	 * <p>Solves under the assumptions with at least <i>degree</i> of the literals true.</p>
+	 * <p>A bound that leaves no freedom (at most 0, at least n, or the same once the features fixed at the root are
+	 * counted) is passed as assumptions: Sat4j would turn it into root-level unit clauses, which cannot be removed
+	 * and would cost a re-parse of the model.</p>
+	 */
+	private int[] solveWithCardinality(IVecInt literals, int degree, int[] assumptions) throws Exception {
+		IConstr constr = null;
+		try {
+			int[] forced = this.getForcedLiterals(literals, degree);
+			if (forced != null){
+				return this.solve(Sat4jSession.concat(assumptions, forced));
+			}
+			constr = this.solver.addAtLeast(literals, degree);
+		} catch (ContradictionException e){
+			return null;
+		}
+		return this.solveAndRemove(constr, assumptions);
+	}
+
+	/***
+	 * <p>The literals an at-least bound forces, given what the solver has assigned at the root (none if the bound
+	 * already holds), as Sat4j normalises cardinality constraints.</p>
+	 * @return the forced literals, or null if the bound leaves some freedom or the solver does not expose its
+	 * assignment
+	 * @throws ContradictionException if the bound cannot hold
+	 */
+	private int[] getForcedLiterals(IVecInt literals, int degree) throws ContradictionException {
+		if (!(this.solver instanceof Solver)){
+			return null;
+		}
+		ILits vocabulary = ((Solver<?>) this.solver).getVocabulary();
+		int[] unassigned = new int[literals.size()];
+		int free = 0;
+		for (int i = 0; i < literals.size(); i++){
+			int p = LiteralsUtils.toInternal(literals.get(i));
+			if (vocabulary.isUnassigned(p)){
+				unassigned[free++] = literals.get(i);
+			} else if (vocabulary.isSatisfied(p)){
+				degree--;
+			}
+		}
+		if (free < degree){
+			throw new ContradictionException();
+		}
+		if (degree <= 0){
+			return new int[0];
+		}
+		return (free == degree) ? Arrays.copyOf(unassigned, free) : null;
+	}
+
+	/***
+	 * <p>Solves under the assumptions, starting the search from the polarities of a model (whatever
+	 * {@link #setWarmStart} says), so the answer stays close to it.</p>
+	 * @param hint model whose polarities are tried first, may be null
+	 * @return the model, or null if there is none
+	 */
+	public int[] solveNear(int[] hint, int... assumptions) throws Exception {
+		boolean warmStart = this.warmStart;
+		int[] hintModel = this.hintModel;
+		this.warmStart = true;
+		this.hintModel = hint;
+		try {
+			return this.solve(assumptions);
+		} finally {
+			this.warmStart = warmStart;
+			this.hintModel = hintModel;
+		}
+	}
+
+	/***
+	 * <p>Solves under the assumptions.</p>
+	 * @return the model, or null if there is none or the query's budget ran out (see {@link QueryStats#getStatus()})
+	 */
+	public int[] solve(int... assumptions) throws Exception {
+		if (this.isBudgetExhausted()){
+			return null;
+		}
+		this.solverCalls++;
+		ISolver solver = this.solver;
+		long conflicts = Sat4jSession.getStat(solver, "conflicts");
+		long decisions = Sat4jSession.getStat(solver, "decisions");
+		long start = System.nanoTime();
+		try {
+			// Sat4j's own timer covers the wall-clock limit, the listener the conflict limit; both stop the search
+			// through the time-based timeout (expiring a conflict-based one mid-search breaks the solver)..
+			if (this.queryStats != null && this.queryDeadline > 0){
+				solver.setTimeoutMs(Math.max(1, this.queryDeadline - System.currentTimeMillis()));
+			} else {
+				solver.setTimeout(Integer.MAX_VALUE);
+			}
+			if (this.cancelled){ // cancel() ran since the budget check, its expired timeout was just replaced..
+				throw new TimeoutException("Cancelled");
+			}
+			long maxConflicts = this.budget.getMaxConflicts();
+			if (this.queryStats != null && maxConflicts > 0){
+				this.conflictLimit.start(solver, maxConflicts - this.queryStats.getConflicts());
+			} else {
+				this.conflictLimit.start(solver, Long.MAX_VALUE);
+			}
+			if (this.phaseHint != null){
+				this.phaseHint.setModel(this.warmStart ? this.hintModel : null);
+			}
+			if (solver.isSatisfiable(new VecInt(assumptions))){
+				return solver.model();
+			}
+			return null;
+		} catch (TimeoutException e){
+			this.exhausted = this.queryStats != null;
+			return null;
+		} finally {
+			this.currentStats().addCall(System.nanoTime() - start, Sat4jSession.getStat(solver, "conflicts") - conflicts,
+					Sat4jSession.getStat(solver, "decisions") - decisions);
+		}
+	}
+
+	/***
+	 * <p>Phase selection that starts every search from the polarities of a previous model.</p>
+	 * <p>Sat4j resets the saved phases at the start of every isSatisfiable call; this wrapper puts the hint back
+	 * right after the reset and otherwise delegates to the solver's own (phase saving) strategy.</p>
+	 */
+	private static final class PhaseHint implements IPhaseSelectionStrategy {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IPhaseSelectionStrategy strategy;
+		private int[] model = null;
+
+		PhaseHint(IPhaseSelectionStrategy strategy) {
+			this.strategy = strategy;
+		}
+
+		void setModel(int[] model) {
+			this.model = model;
+		}
+
+		@Override
+		public void init(int nlength) {
+			this.strategy.init(nlength);
+			if (this.model != null){
+				for (int literal : this.model){
+					if (Math.abs(literal) < nlength){
+						this.strategy.init(Math.abs(literal), LiteralsUtils.toInternal(literal));
+					}
+				}
+			}
+		}
+
+		@Override
+		public void init(int var, int p) {
+			this.strategy.init(var, p);
+		}
+
+		@Override
+		public void updateVar(int p) {
+			this.strategy.updateVar(p);
+		}
+
+		@Override
+		public void assignLiteral(int p) {
+			this.strategy.assignLiteral(p);
+		}
+
+		@Override
+		public int select(int var) {
+			return this.strategy.select(var);
+		}
+
+		@Override
+		public void updateVarAtDecisionLevel(int q) {
+			this.strategy.updateVarAtDecisionLevel(q);
+		}
+
+	}
+
+	/***
+	 * <p>Stops the search of a solver after a number of conflicts, or at the first decision or conflict after the
+	 * session is cancelled.</p>
+	 */
+	private static final class ConflictLimit extends SearchListenerAdapter<ISolverService> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Sat4jSession session;
+		private ISolver solver;
+		private long left;
+
+		ConflictLimit(Sat4jSession session) {
+			this.session = session;
+		}
+
+		void start(ISolver solver, long conflicts) {
+			this.solver = solver;
+			this.left = conflicts;
+		}
+
+		@Override
+		public void assuming(int p) {
+			if (this.session.cancelled){
+				this.solver.expireTimeout();
+			}
+		}
+
+		@Override
+		public void conflictFound(IConstr confl, int dlevel, int trailLevel) {
+			if (--this.left == 0 || this.session.cancelled){
+				this.solver.expireTimeout();
+			}
+		}
+
+	}
+
+	private static long getStat(ISolver solver, String name) {
+		Number value = solver.getStat().get(name);
+		return (value == null) ? 0 : value.longValue();
+	}
+
+	private int[] solveAndRemove(IConstr constr, int[] assumptions) throws Exception {
+		try {
+			return this.solve(assumptions);
+		} finally {
+			// Root-level units cannot be removed; only a solver that hides its assignment gets here (see getForcedLiterals)..
+			if (constr == null || constr instanceof UnitClauses){
+				this.load();
+			} else {
+				this.solver.removeConstr(constr);
+			}
+		}
+	}
+
+	/***
+	 * <p>Number of positive literals in a model or a set of assumptions (0 for null).</p>
+	 */
+	public static int countEnabled(int[] literals) {
+		int count = 0;
+		if (literals != null){
+			for (int literal : literals){
+				if (literal > 0){
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/***
+	 * <p>Whether <i>feature</i> is enabled in a Sat4j model.</p>
+	 */
+	private static boolean valueOf(int[] model, int feature) {
+		// Sat4j lists the model in variable order..
+		if (feature <= model.length && Math.abs(model[feature - 1]) == feature){
+			return model[feature - 1] > 0;
+		}
+		for (int literal : model){
+			if (Math.abs(literal) == feature){
+				return literal > 0;
+			}
+		}
+		return false;
+	}
+
+	private static int[] concat(int[] a, int[] b) {
+		int[] literals = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, literals, a.length, b.length);
+		return literals;
+	}
+
+	private static int countDisabled(int[] literals) {
+		int count = 0;
+		for (int literal : literals){
+			if (literal < 0){
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/***
+	 * <p>Translates a model into feature names, disabled features prefixed by "!".</p>
+	 * @param model Sat4j model, may be null
+	 * @return the configuration (empty if model is null)
+	 */
+	public List<String> toConfiguration(int[] model) {
+		return this.symbols.toConfiguration(model);
+	}
+
+}
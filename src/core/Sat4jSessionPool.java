@@ -0,0 +1,270 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * <p>Sat4jSessionPool answers one-enabled / one-disabled queries in parallel on a fixed thread pool.</p>
+ * <p>Every worker thread owns its own {@link Sat4jSession} (sessions are not thread-safe), parsed once when the
+ * thread picks up its first chunk of features and reused for all later chunks and queries: the workers live as
+ * long as the pool, until {@link #close()} (they are daemon threads, so a pool left open does not keep the JVM
+ * alive). Results are returned in feature order, exactly as {@link Sat4jSession#getOneEnabled()} /
+ * {@link Sat4jSession#getOneDisabled()} would.</p>
+ */
+public class Sat4jSessionPool {
+
+	private final String file;
+	private final int threads;
+	private final Sat4jSession.Strategy strategy;
+	private boolean reuseModels = false;
+	private FeatureModelBackbone backbone = null;
+	private SolverBudget budget = SolverBudget.UNLIMITED;
+	private String solverName = Sat4jSession.DEFAULT_SOLVER;
+	private boolean warmStart = false;
+	private boolean orderFeatures = false;
+	private final ExecutorService executor;
+	private final List<Sat4jSession> created = Collections.synchronizedList(new ArrayList<Sat4jSession>());
+	private final QueryStats retired = new QueryStats();
+	private final ThreadLocal<Sat4jSession> sessions = new ThreadLocal<Sat4jSession>();
+
+	public Sat4jSessionPool(String file) {
+		this(file, Runtime.getRuntime().availableProcessors(), Sat4jSession.Strategy.BINARY);
+	}
+
+	public Sat4jSessionPool(String file, int threads, Sat4jSession.Strategy strategy) {
+		this.file = file;
+		this.threads = Math.max(1, threads);
+		this.strategy = strategy;
+		this.executor = Executors.newFixedThreadPool(this.threads, Sat4jSessionPool.daemonThreads("sat4j-pool"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		String file = "featureModel/busybox.dimacs";
+		Sat4jSessionPool pool = new Sat4jSessionPool(file);
+		try {
+			long start = System.currentTimeMillis();
+			List<List<String>> configurations = pool.getOneEnabled();
+			System.out.println("One-enabled: " + configurations.size() + " configurations in " + (System.currentTimeMillis() - start) + " ms");
+			start = System.currentTimeMillis();
+			configurations = pool.getOneDisabled();
+			System.out.println("One-disabled: " + configurations.size() + " configurations in " + (System.currentTimeMillis() - start)
+					+ " ms, " + pool.getSessions() + " sessions");
+		} finally {
+			pool.close();
+		}
+	}
+
+	/***
+	 * <p>Names the threads of an executor "&lt;name&gt;-&lt;n&gt;" and makes them daemon threads, for executors
+	 * kept open between calls.</p>
+	 */
+	static ThreadFactory daemonThreads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/***
+	 * <p>Turns on {@link Sat4jSession#setReuseModels} in every worker session (models are reused per worker).</p>
+	 */
+	public void setReuseModels(boolean reuseModels) {
+		this.reuseModels = reuseModels;
+	}
+
+	/***
+	 * <p>Shares one (immutable) backbone with every worker session, see {@link Sat4jSession#setBackbone}.</p>
+	 */
+	public void setBackbone(FeatureModelBackbone backbone) {
+		this.backbone = backbone;
+	}
+
+	/***
+	 * <p>Sets the per-query budget of every worker session, see {@link Sat4jSession#setBudget}.</p>
+	 */
+	public void setBudget(SolverBudget budget) {
+		this.budget = budget;
+	}
+
+	/***
+	 * <p>Sat4j solver configuration of the worker sessions (see {@link Sat4jPortfolio#getFastestSolver}); a worker
+	 * whose session has another configuration parses the model again.</p>
+	 */
+	public void setSolverName(String solverName) {
+		this.solverName = (solverName == null) ? Sat4jSession.DEFAULT_SOLVER : solverName;
+	}
+
+	/***
+	 * <p>Turns on {@link Sat4jSession#setWarmStart} in every worker session.</p>
+	 */
+	public void setWarmStart(boolean warmStart) {
+		this.warmStart = warmStart;
+	}
+
+	/***
+	 * <p>Hands features out in constraint-graph order (see {@link Sat4jSession#getQueryOrder()}), so every worker
+	 * gets runs of similar queries. Results stay in feature order.</p>
+	 */
+	public void setOrderFeatures(boolean orderFeatures) {
+		this.orderFeatures = orderFeatures;
+	}
+
+	/***
+	 * <p>Stats summed over all worker sessions created so far.</p>
+	 */
+	public QueryStats getStats() {
+		QueryStats stats = new QueryStats();
+		stats.add(this.retired);
+		synchronized (this.created){
+			for (Sat4jSession session : this.created){
+				stats.add(session.getStats());
+			}
+		}
+		return stats;
+	}
+
+	/***
+	 * <p>Number of worker sessions (at most one per thread).</p>
+	 */
+	public int getSessions() {
+		return this.created.size();
+	}
+
+	/***
+	 * <p>Stops the worker threads. The pool cannot be used afterwards.</p>
+	 */
+	public void close() {
+		this.executor.shutdownNow();
+	}
+
+	/***
+	 * <p>One-enabled over every feature of the model, solved in parallel.</p>
+	 * @return one configuration per feature, in feature order
+	 * @throws Exception
+	 */
+	public List<List<String>> getOneEnabled() throws Exception {
+		return this.solveAll(true);
+	}
+
+	/***
+	 * <p>One-disabled over every feature of the model, solved in parallel.</p>
+	 * @return one configuration per feature, in feature order
+	 * @throws Exception
+	 */
+	public List<List<String>> getOneDisabled() throws Exception {
+		return this.solveAll(false);
+	}
+
+	private List<List<String>> solveAll(final boolean enabled) throws Exception {
+		int numberOfFeatures = DimacsSymbolTable.forFile(this.file).getNumberOfVariables();
+		final int[] order = this.getOrder(numberOfFeatures);
+
+		// A few chunks per thread keeps the workers busy while neighbouring features stay on the same solver..
+		int chunkSize = Math.max(1, numberOfFeatures / (this.threads * 4));
+
+		List<Future<List<List<String>>>> chunks = new ArrayList<Future<List<List<String>>>>();
+		try {
+			for (int first = 0; first < numberOfFeatures; first += chunkSize){
+				final int from = first;
+				final int to = Math.min(numberOfFeatures, first + chunkSize);
+				chunks.add(this.executor.submit(new Callable<List<List<String>>>() {
+					@Override
+					public List<List<String>> call() throws Exception {
+						return Sat4jSessionPool.this.solveChunk(order, from, to, enabled);
+					}
+				}));
+			}
+
+			List<List<String>> configurations = new ArrayList<List<String>>(numberOfFeatures);
+			for (int i = 0; i < numberOfFeatures; i++){
+				configurations.add(null);
+			}
+			int position = 0;
+			for (Future<List<List<String>>> chunk : chunks){
+				try {
+					for (List<String> configuration : chunk.get()){
+						configurations.set(order[position++] - 1, configuration);
+					}
+				} catch (ExecutionException e){
+					if (e.getCause() instanceof Exception){
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+			return configurations;
+		} finally {
+			// A failed chunk leaves the others running on the shared workers..
+			for (Future<List<List<String>>> chunk : chunks){
+				chunk.cancel(false);
+			}
+		}
+	}
+
+	/***
+	 * <p>Solves the features order[from] .. order[to - 1].</p>
+	 */
+	private List<List<String>> solveChunk(int[] order, int from, int to, boolean enabled) throws Exception {
+		Sat4jSession session = this.getSession();
+		List<List<String>> configurations = new ArrayList<List<String>>(to - from);
+		for (int i = from; i < to; i++){
+			if (enabled){
+				configurations.add(session.getOneEnabled(order[i]));
+			} else {
+				configurations.add(session.getOneDisabled(order[i]));
+			}
+		}
+		return configurations;
+	}
+
+	private int[] getOrder(int numberOfFeatures) throws Exception {
+		if (this.orderFeatures){
+			return Sat4jSession.constraintOrder(this.file, numberOfFeatures);
+		}
+		int[] order = new int[numberOfFeatures];
+		for (int i = 0; i < order.length; i++){
+			order[i] = i + 1;
+		}
+		return order;
+	}
+
+	/***
+	 * <p>The session of the calling worker thread, created on first use and set up with the current settings.</p>
+	 */
+	private Sat4jSession getSession() throws Exception {
+		Sat4jSession session = this.sessions.get();
+		if (session != null && !session.getSolverName().equals(this.solverName)){
+			this.retired.add(session.getStats());
+			this.created.remove(session);
+			session = null;
+		}
+		if (session == null){
+			session = new Sat4jSession(this.file, this.strategy, this.solverName);
+			this.sessions.set(session);
+			this.created.add(session);
+		}
+		session.setReuseModels(this.reuseModels);
+		session.setBackbone(this.backbone);
+		session.setBudget(this.budget);
+		session.setWarmStart(this.warmStart);
+		return session;
+	}
+
+}
@@ -0,0 +1,50 @@
+package core;
+
+/***
+ * <p>SolverBudget limits a single {@link Sat4jSession} query: wall-clock time, SAT conflicts and solver calls.
+ * A limit of 0 means unlimited.</p>
+ * <p>When a limit is reached the query stops and returns the best model found so far, and its
+ * {@link QueryStats#getStatus()} is {@link QueryStats.Status#BUDGET_EXHAUSTED}. The first solver call of a search is
+ * held only to the wall-clock limit, so the model is null only when that limit (or a cancel) stops it.</p>
+ */
+public final class SolverBudget {
+
+	public static final SolverBudget UNLIMITED = new SolverBudget(0, 0, 0);
+
+	private final long timeoutMillis;
+	private final long maxConflicts;
+	private final int maxCalls;
+
+	/***
+	 * @param timeoutMillis wall-clock limit of a query in milliseconds (0 for none)
+	 * @param maxConflicts conflicts allowed over all solver calls of a query (0 for none)
+	 * @param maxCalls solver calls allowed in a query (0 for none)
+	 */
+	public SolverBudget(long timeoutMillis, long maxConflicts, int maxCalls) {
+		this.timeoutMillis = Math.max(0, timeoutMillis);
+		this.maxConflicts = Math.max(0, maxConflicts);
+		this.maxCalls = Math.max(0, maxCalls);
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public long getMaxConflicts() {
+		return maxConflicts;
+	}
+
+	public int getMaxCalls() {
+		return maxCalls;
+	}
+
+	public boolean isUnlimited() {
+		return timeoutMillis == 0 && maxConflicts == 0 && maxCalls == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "timeout=" + timeoutMillis + "ms, conflicts=" + maxConflicts + ", calls=" + maxCalls;
+	}
+
+}
@@ -0,0 +1,467 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * <p>TwiseCoverageAnalyser measures which fraction of the valid t-wise interactions (t = 1..3) of a variable scope a
+ * sample set covers, for any {@code List<List<String>>} of configurations ("NAME" / "!NAME" literals).</p>
+ * <p>Every scope variable gets two packed bitsets over the samples (enabled in sample s, disabled in sample s; a
+ * sample without the variable sets neither), so a tuple is covered when the AND of its t bitsets is not zero. A tuple
+ * no sample has is valid if the feature model allows it: it is first pruned by the invalid tuples of the lower
+ * strength (an invalid literal or pair makes every tuple containing it invalid), then looked up in the models the
+ * solver already returned (kept as bitsets too), and only then given to {@link Sat4jSession#solve}. The work is
+ * split over variable pairs (over variables for t = 1, 2) on a thread pool, each thread with its own session; call
+ * {@link #shutdown()} when done.</p>
+ */
+public class TwiseCoverageAnalyser {
+
+	/** Largest number of t-tuples analysed at once: C(n, t) * 2^t must stay below it. */
+	public static final long MAX_TUPLES = 1L << 32;
+
+	private final String file;
+	private final int threads;
+	private final DimacsSymbolTable symbols;
+	private final ExecutorService executor;
+	private final ThreadLocal<Sat4jSession> sessions = new ThreadLocal<Sat4jSession>();
+
+	public TwiseCoverageAnalyser(String file) throws Exception {
+		this(file, Runtime.getRuntime().availableProcessors());
+	}
+
+	/***
+	 * @param file DIMACS file path
+	 * @param threads analysing threads
+	 * @throws Exception
+	 */
+	public TwiseCoverageAnalyser(String file, int threads) throws Exception {
+		this.file = file;
+		this.threads = Math.max(1, threads);
+		this.symbols = DimacsSymbolTable.forFile(file);
+		this.executor = Executors.newFixedThreadPool(this.threads);
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> scope = new ArrayList<String>();
+		scope.add("ENABLE_FEATURE_SEAMLESS_GZ");
+		scope.add("ENABLE_FEATURE_TAR_CREATE");
+		scope.add("ENABLE_FEATURE_TAR_LONG_OPTIONS");
+		scope.add("ENABLE_FEATURE_TAR_FROM");
+		scope.add("ENABLE_TAR");
+		scope.add("ENABLE_GUNZIP");
+
+		TwiseCoverageAnalyser analyser = new TwiseCoverageAnalyser("featureModel/busybox.dimacs");
+		try {
+			for (int t = 1; t <= 3; t++){
+				List<List<String>> samples = DirectiveScopedTwise.forFile("featureModel/busybox.dimacs").getSamples(scope, t);
+				System.out.println(samples.size() + " " + t + "-wise samples: " + analyser.analyse(samples, scope, 3));
+			}
+		} finally {
+			analyser.shutdown();
+		}
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/***
+	 * <p>Stops the analysing threads. The analyser cannot be used afterwards.</p>
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	/***
+	 * <p>t-wise coverage of a sample set for every t from 1 to maxT.</p>
+	 * @param samples configurations, literals outside the scope are ignored
+	 * @param scope variable names (names missing from the model are ignored)
+	 * @param maxT highest strength, 1 to 3
+	 * @return one coverage per t, in order
+	 * @throws Exception
+	 */
+	public List<Coverage> analyse(List<List<String>> samples, Collection<String> scope, int maxT) throws Exception {
+		if (maxT < 1 || maxT > 3){
+			throw new IllegalArgumentException("t must be between 1 and 3: " + maxT);
+		}
+		List<Integer> ids = new ArrayList<Integer>();
+		for (String name : new LinkedHashSet<String>(scope)){
+			int id = this.symbols.getId(name);
+			if (id > 0){
+				ids.add(id);
+			}
+		}
+		Collections.sort(ids);
+		Scope s = new Scope(ids, this.symbols, samples);
+
+		List<Coverage> coverages = new ArrayList<Coverage>();
+		for (int t = 1; t <= maxT; t++){
+			coverages.add(this.analyse(s, t));
+		}
+		return coverages;
+	}
+
+	private Coverage analyse(final Scope scope, final int t) throws Exception {
+		int n = scope.ids.length;
+		long tuples = TwiseCoverageAnalyser.binomial(n, t) << t;
+		if (tuples > MAX_TUPLES){
+			throw new IllegalArgumentException(t + "-wise over " + n + " variables needs " + tuples + " tuples");
+		}
+
+		// Variables for t = 1, 2, variable pairs for t = 3; striped so every task gets big and small rows..
+		final long units = (t == 3) ? TwiseCoverageAnalyser.binomial(n, 2) : n;
+		final int tasks = (int) Math.max(1, Math.min(units, this.threads * 8L));
+		List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+		for (int task = 0; task < tasks; task++){
+			final int first = task;
+			futures.add(this.executor.submit(new Callable<long[]>() {
+				@Override
+				public long[] call() throws Exception {
+					return TwiseCoverageAnalyser.this.analyseUnits(scope, t, first, tasks, units);
+				}
+			}));
+		}
+
+		long covered = 0;
+		long invalid = 0;
+		long hits = 0;
+		List<long[]> results = new ArrayList<long[]>();
+		for (Future<long[]> future : futures){
+			long[] result;
+			try {
+				result = future.get();
+			} catch (ExecutionException e){
+				if (e.getCause() instanceof Exception){
+					throw (Exception) e.getCause();
+				}
+				throw e;
+			}
+			covered += result[0];
+			invalid += result[1];
+			hits += result[2];
+			results.add(result);
+		}
+		// Invalid literals / pairs found at this strength prune the next one..
+		if (t == 1){
+			scope.invalidLiterals = new boolean[n * 2];
+			for (long[] result : results){
+				for (int i = 3; i < result.length; i++){
+					scope.invalidLiterals[(int) result[i]] = true;
+				}
+			}
+		} else if (t == 2){
+			scope.invalidPairs = new long[(int) ((((long) n * n * 4) + 63) >>> 6)];
+			for (long[] result : results){
+				for (int i = 3; i < result.length; i++){
+					scope.invalidPairs[(int) (result[i] >>> 6)] |= 1L << (result[i] & 63);
+				}
+			}
+		}
+		return new Coverage(t, n, scope.samples, tuples, covered, invalid, hits);
+	}
+
+	/***
+	 * <p>Analyses the units first, first + step, .. of one strength.</p>
+	 * @return covered tuples, invalid tuples, samples summed over the covered tuples, then the codes of the invalid
+	 * tuples (t = 1, 2 only)
+	 */
+	private long[] analyseUnits(Scope scope, int t, int first, int step, long units) throws Exception {
+		int n = scope.ids.length;
+		Witnesses witnesses = new Witnesses(n);
+		long covered = 0;
+		long hits = 0;
+		long invalid = 0;
+		long[] codes = new long[16];
+		int size = 3;
+		int[] v = new int[t];
+
+		for (long unit = first; unit < units; unit += step){
+			int from;
+			if (t == 3){
+				// Pair index -> (i, j), i < j, in row order..
+				int i = 0;
+				long rest = unit;
+				while (rest >= n - 1 - i){
+					rest -= n - 1 - i;
+					i++;
+				}
+				v[0] = i;
+				v[1] = i + 1 + (int) rest;
+				from = v[1] + 1;
+			} else {
+				v[0] = (int) unit;
+				from = v[0] + 1;
+			}
+			int last = (t == 1) ? v[0] + 1 : n;
+			for (int k = (t == 1) ? v[0] : from; k < last; k++){
+				v[t - 1] = k;
+				for (int a = 0; a < (1 << t); a++){
+					int count = scope.count(v, t, a);
+					if (count > 0){
+						covered++;
+						hits += count;
+					} else if (scope.isPruned(v, t, a) || (!witnesses.has(v, t, a) && this.isInvalid(scope, witnesses, v, t, a))){
+						invalid++;
+						if (t < 3){
+							if (size == codes.length){
+								codes = Arrays.copyOf(codes, size * 2);
+							}
+							codes[size++] = (t == 1) ? (v[0] * 2 + a) : (((long) v[0] * n + v[1]) * 4 + a);
+						}
+					}
+				}
+			}
+		}
+		codes = Arrays.copyOf(codes, size);
+		codes[0] = covered;
+		codes[1] = invalid;
+		codes[2] = hits;
+		return codes;
+	}
+
+	/***
+	 * <p>Asks the thread's solver for the tuple; a model found is kept as a witness for later tuples.</p>
+	 */
+	private boolean isInvalid(Scope scope, Witnesses witnesses, int[] v, int t, int a) throws Exception {
+		int[] literals = new int[t];
+		for (int i = 0; i < t; i++){
+			int id = scope.ids[v[i]];
+			literals[i] = ((a & (1 << i)) != 0) ? id : -id;
+		}
+		int[] model = this.getSession().solve(literals);
+		if (model == null){
+			return true;
+		}
+		witnesses.add(model, scope.ids);
+		return false;
+	}
+
+	/***
+	 * <p>The session of the calling thread, created on first use.</p>
+	 */
+	private Sat4jSession getSession() throws Exception {
+		Sat4jSession session = this.sessions.get();
+		if (session == null){
+			session = new Sat4jSession(this.file);
+			this.sessions.set(session);
+		}
+		return session;
+	}
+
+	static long binomial(int n, int k) {
+		if (k < 0 || k > n){
+			return 0;
+		}
+		long result = 1;
+		for (int i = 1; i <= k; i++){
+			result = result * (n - k + i) / i;
+		}
+		return result;
+	}
+
+	/***
+	 * <p>The scope variables with their sample bitsets, and the invalid tuples found at lower strengths.</p>
+	 */
+	private static final class Scope {
+
+		final int[] ids;
+		final int samples;
+		final int words;
+		final long[] enabled;
+		final long[] disabled;
+		boolean[] invalidLiterals = null;
+		long[] invalidPairs = null;
+
+		Scope(List<Integer> ids, DimacsSymbolTable symbols, List<List<String>> configurations) {
+			this.ids = new int[ids.size()];
+			Map<String, Integer> indexes = new HashMap<String, Integer>(ids.size() * 2);
+			for (int i = 0; i < this.ids.length; i++){
+				this.ids[i] = ids.get(i);
+				indexes.put(symbols.getName(this.ids[i]), i);
+			}
+			this.samples = configurations.size();
+			this.words = Math.max(1, (this.samples + 63) >>> 6);
+			this.enabled = new long[this.ids.length * this.words];
+			this.disabled = new long[this.ids.length * this.words];
+			for (int s = 0; s < this.samples; s++){
+				for (String literal : configurations.get(s)){
+					boolean negated = literal.startsWith("!");
+					Integer index = indexes.get(negated ? literal.substring(1) : literal);
+					if (index != null){
+						long[] bits = negated ? this.disabled : this.enabled;
+						bits[index * this.words + (s >>> 6)] |= 1L << (s & 63);
+					}
+				}
+			}
+		}
+
+		/***
+		 * <p>Number of samples with the tuple (popcount of the AND of its bitsets).</p>
+		 */
+		int count(int[] v, int t, int a) {
+			int count = 0;
+			for (int w = 0; w < this.words; w++){
+				long bits = -1L;
+				for (int i = 0; i < t; i++){
+					bits &= (((a & (1 << i)) != 0) ? this.enabled : this.disabled)[v[i] * this.words + w];
+				}
+				count += Long.bitCount(bits);
+			}
+			return count;
+		}
+
+		boolean isPruned(int[] v, int t, int a) {
+			for (int i = 0; i < t && this.invalidLiterals != null; i++){
+				if (this.invalidLiterals[v[i] * 2 + ((a >>> i) & 1)]){
+					return true;
+				}
+			}
+			if (t == 3 && this.invalidPairs != null){
+				int n = this.ids.length;
+				for (int i = 0; i < 3; i++){
+					for (int j = i + 1; j < 3; j++){
+						long code = ((long) v[i] * n + v[j]) * 4 + ((a >>> i) & 1) + (((a >>> j) & 1) << 1);
+						if ((this.invalidPairs[(int) (code >>> 6)] & (1L << (code & 63))) != 0){
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/***
+	 * <p>Solver models found by one task, as bitsets over the scope variables like the samples.</p>
+	 */
+	private static final class Witnesses {
+
+		final long[][] enabled;
+		final long[][] disabled;
+		int count = 0;
+
+		Witnesses(int n) {
+			this.enabled = new long[n][1];
+			this.disabled = new long[n][1];
+		}
+
+		void add(int[] model, int[] ids) {
+			int word = this.count >>> 6;
+			for (int i = 0; i < ids.length; i++){
+				if (word == this.enabled[i].length){
+					this.enabled[i] = Arrays.copyOf(this.enabled[i], word * 2);
+					this.disabled[i] = Arrays.copyOf(this.disabled[i], word * 2);
+				}
+				if (model[ids[i] - 1] > 0){
+					this.enabled[i][word] |= 1L << (this.count & 63);
+				} else {
+					this.disabled[i][word] |= 1L << (this.count & 63);
+				}
+			}
+			this.count++;
+		}
+
+		boolean has(int[] v, int t, int a) {
+			int words = (this.count + 63) >>> 6;
+			for (int w = 0; w < words; w++){
+				long bits = -1L;
+				for (int i = 0; i < t; i++){
+					bits &= (((a & (1 << i)) != 0) ? this.enabled : this.disabled)[v[i]][w];
+				}
+				if (bits != 0){
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/***
+	 * <p>The t-wise coverage of a sample set: covered tuples over valid tuples of the scope.</p>
+	 */
+	public static final class Coverage {
+
+		private final int t;
+		private final int variables;
+		private final int samples;
+		private final long tuples;
+		private final long covered;
+		private final long invalid;
+		private final long hits;
+
+		Coverage(int t, int variables, int samples, long tuples, long covered, long invalid, long hits) {
+			this.t = t;
+			this.variables = variables;
+			this.samples = samples;
+			this.tuples = tuples;
+			this.covered = covered;
+			this.invalid = invalid;
+			this.hits = hits;
+		}
+
+		public int getT() {
+			return t;
+		}
+
+		public int getNumberOfVariables() {
+			return variables;
+		}
+
+		public int getNumberOfSamples() {
+			return samples;
+		}
+
+		public long getNumberOfTuples() {
+			return tuples;
+		}
+
+		public long getNumberOfCovered() {
+			return covered;
+		}
+
+		public long getNumberOfInvalid() {
+			return invalid;
+		}
+
+		public long getNumberOfValid() {
+			return tuples - invalid;
+		}
+
+		/***
+		 * <p>Average number of samples with a covered tuple: how redundant the sample set is.</p>
+		 */
+		public double getMultiplicity() {
+			return (this.covered == 0) ? 0.0 : (double) this.hits / this.covered;
+		}
+
+		/***
+		 * <p>Covered / valid tuples (1 when there is no valid tuple).</p>
+		 */
+		public double getCoverage() {
+			long valid = this.getNumberOfValid();
+			return (valid == 0) ? 1.0 : (double) this.covered / valid;
+		}
+
+		@Override
+		public String toString() {
+			return this.t + "-wise " + this.covered + "/" + this.getNumberOfValid() + " ("
+					+ String.format("%.1f", this.getCoverage() * 100) + "%, " + this.invalid + " invalid, "
+					+ String.format("%.1f", this.getMultiplicity()) + " samples per tuple)";
+		}
+
+	}
+
+}
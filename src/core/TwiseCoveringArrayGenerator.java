@@ -0,0 +1,629 @@
+package core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * <p>TwiseCoveringArrayGenerator builds a constrained t-wise covering array (t = 1..4) of a DIMACS feature model, in
+ * the CSV layout of SPLCAT ("Feature\Product;0;1;..;" then "NAME;X;-;..;"), so {@link CoveringArraysUtils} and the
+ * t-wise samplings read it like the precomputed ones.</p>
+ * <p>The construction follows Chv&aacute;tal / ICPL: every product starts from the first uncovered t-tuple and takes
+ * every later uncovered tuple it can. A tuple the product's current model already has costs nothing; any other one
+ * is pinned by one {@link Sat4jSession#solveNear} under the literals pinned so far, starting from the current model
+ * so the tuples it had mostly stay. The first model of a product starts from random polarities, which spreads the
+ * products over the model much better than Sat4j's all-disabled default. Every product is a model of the feature
+ * model; a tuple that is unsatisfiable on its own is invalid and never needs covering.</p>
+ * <p>Given existing configurations ({@link #setInitialConfigurations}), the tuples they already have are marked
+ * covered first, so the products generated are only the ones needed to complete them to t-wise coverage.</p>
+ * <p>Tuples are kept as one bit per (combination, assignment) in colex combination order. Marking the tuples of a
+ * new product and the initial {@link FeatureModelBackbone} pass run on a thread pool, over chunks of combinations
+ * that never share a word.</p>
+ */
+public class TwiseCoveringArrayGenerator {
+
+	/**
+	 * Largest tuple bitset allocated (in bits, 256 MB): C(n, t) * 2^t must stay below it and below half the heap,
+	 * restrict the features otherwise. Busybox 3-wise needs 366M bits, Linux 2-wise 7.8G.
+	 */
+	public static final long MAX_TUPLES = 1L << 31;
+
+	/** System property naming the directory generated covering arrays are kept in (see {@link #getCacheDirectory}). */
+	public static final String CACHE_PROPERTY = "covering.array.cache";
+
+	private final String file;
+	private final int t;
+	private final int threads;
+	private final DimacsSymbolTable symbols;
+	private int[] features;
+	private int maxFailures = 100;
+
+	private long[][] binomials;
+	private long combinations;
+	private long[] done;
+	private long invalidTuples = 0;
+	private long coveredTuples = 0;
+	private long initiallyCovered = 0;
+	private long solverCalls = 0;
+	private final Random random = new Random(0);
+	private final List<int[]> products = new ArrayList<int[]>();
+	private final List<int[]> initial = new ArrayList<int[]>();
+
+	public TwiseCoveringArrayGenerator(String file, int t) throws Exception {
+		this(file, t, Runtime.getRuntime().availableProcessors());
+	}
+
+	/***
+	 * @param file DIMACS file path
+	 * @param t strength, 1 to 4
+	 * @param threads threads marking tuples
+	 * @throws Exception
+	 */
+	public TwiseCoveringArrayGenerator(String file, int t, int threads) throws Exception {
+		if (t < 1 || t > 4){
+			throw new IllegalArgumentException("t must be between 1 and 4: " + t);
+		}
+		this.file = file;
+		this.t = t;
+		this.threads = Math.max(1, threads);
+		this.symbols = DimacsSymbolTable.forFile(file);
+
+		List<Integer> named = new ArrayList<Integer>();
+		for (int id = 1; id <= this.symbols.getNumberOfVariables(); id++){
+			if (this.symbols.getName(id) != null){
+				named.add(id);
+			}
+		}
+		this.features = TwiseCoveringArrayGenerator.toArray(named);
+	}
+
+	public static void main(String[] args) throws Exception {
+		for (int t = 1; t <= 2; t++){
+			long start = System.currentTimeMillis();
+			TwiseCoveringArrayGenerator generator = new TwiseCoveringArrayGenerator("featureModel/busybox.dimacs", t);
+			generator.generate();
+			System.out.println(t + "-wise: " + generator.getProducts().size() + " products, " + generator.getNumberOfTuples()
+					+ " tuples, " + generator.getNumberOfInvalid() + " invalid, " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	/***
+	 * <p>Returns the covering array of a DIMACS model: a precomputed SPLCAT array "&lt;model&gt;.ca&lt;t&gt;.csv" next
+	 * to the model as it is, else one generated into {@link #getCacheDirectory} (so the model directory, which is
+	 * under version control, only ever holds the SPLCAT arrays). A generated array older than the model is
+	 * generated again.</p>
+	 * @param dimacs DIMACS model
+	 * @param t strength, 1 to 4
+	 * @return the CSV file
+	 * @throws Exception
+	 */
+	public static File forModel(File dimacs, int t) throws Exception {
+		File precomputed = new File(dimacs.getPath() + ".ca" + t + ".csv");
+		if (precomputed.exists()){
+			return precomputed;
+		}
+		// Named after the model's canonical path too, so models of the same name in other checkouts never mix..
+		File model = dimacs.getCanonicalFile();
+		File csv = new File(TwiseCoveringArrayGenerator.getCacheDirectory(), model.getName() + "."
+				+ Integer.toHexString(model.getPath().hashCode()) + ".ca" + t + ".csv");
+		synchronized (TwiseCoveringArrayGenerator.class){
+			if (!csv.exists() || csv.lastModified() < model.lastModified()){
+				TwiseCoveringArrayGenerator generator = new TwiseCoveringArrayGenerator(model.getPath(), t);
+				generator.generate();
+				if (!csv.getParentFile().isDirectory() && !csv.getParentFile().mkdirs()){
+					throw new IOException("Could not create covering array cache " + csv.getParentFile());
+				}
+				generator.write(csv);
+			}
+		}
+		return csv;
+	}
+
+	/***
+	 * <p>The directory of generated covering arrays: the one named by the {@link #CACHE_PROPERTY} system property,
+	 * else ~/.sampling/covering-arrays (next to the default {@link DirectiveIndex} journal).</p>
+	 */
+	public static File getCacheDirectory() {
+		String directory = System.getProperty(CACHE_PROPERTY);
+		if (directory != null && !directory.isEmpty()){
+			return new File(directory);
+		}
+		return new File(new File(System.getProperty("user.home"), ".sampling"), "covering-arrays");
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public int getT() {
+		return t;
+	}
+
+	/***
+	 * <p>Restricts the tuples to the given features (names missing from the model are ignored). The products stay
+	 * complete configurations of the model.</p>
+	 */
+	public void setFeatures(Collection<String> names) {
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+		for (String name : names){
+			int id = this.symbols.getId(name);
+			if (id > 0){
+				ids.add(id);
+			}
+		}
+		this.features = TwiseCoveringArrayGenerator.toArray(ids);
+	}
+
+	/***
+	 * <p>Configurations the array completes: their tuples count as covered and they are not part of the products.
+	 * A configuration may be partial (e.g. projected onto a file's directives); a tuple with a feature it does not
+	 * assign is not covered by it. Names are enabled features, "!name" disabled ones; names missing from the model
+	 * are ignored.</p>
+	 */
+	public void setInitialConfigurations(Collection<? extends Collection<String>> configurations) {
+		this.initial.clear();
+		for (Collection<String> configuration : configurations){
+			int[] partial = new int[this.symbols.getNumberOfVariables()];
+			for (String literal : configuration){
+				boolean disabled = literal.startsWith("!");
+				int id = this.symbols.getId(disabled ? literal.substring(1) : literal);
+				if (id > 0){
+					partial[id - 1] = disabled ? -id : id;
+				}
+			}
+			this.initial.add(partial);
+		}
+	}
+
+	/***
+	 * <p>How many satisfiability checks may fail while one product is grown before it is closed (the first tuple of a
+	 * product is always tried, so the construction still ends).</p>
+	 */
+	public void setMaxFailures(int maxFailures) {
+		this.maxFailures = maxFailures;
+	}
+
+	/***
+	 * <p>Builds the covering array.</p>
+	 * @return the products, as Sat4j models
+	 * @throws Exception
+	 */
+	public List<int[]> generate() throws Exception {
+		return this.generate(new Sat4jSession(this.file));
+	}
+
+	/***
+	 * <p>Builds the covering array with a session of the same model, so callers generating many small arrays parse
+	 * the model once.</p>
+	 * @param session session used for every satisfiability check
+	 * @return the products, as Sat4j models
+	 * @throws Exception
+	 */
+	public List<int[]> generate(Sat4jSession session) throws Exception {
+		int n = this.features.length;
+		this.products.clear();
+		this.invalidTuples = 0;
+		this.coveredTuples = 0;
+		this.initiallyCovered = 0;
+		this.solverCalls = 0;
+		this.random.setSeed(0);
+		this.binomials = new long[n + 1][this.t + 1];
+		for (int i = 0; i <= n; i++){
+			this.binomials[i][0] = 1;
+			for (int k = 1; k <= Math.min(i, this.t); k++){
+				this.binomials[i][k] = this.binomials[i - 1][k - 1] + this.binomials[i - 1][k];
+			}
+		}
+		this.combinations = (n < this.t) ? 0 : this.binomials[n][this.t];
+		long tuples = this.combinations << this.t;
+		if (tuples > MAX_TUPLES){
+			throw new IllegalArgumentException(this.t + "-wise over " + n + " features needs " + tuples
+					+ " tuples, restrict the features (setFeatures)");
+		}
+		if (tuples / 8 > Runtime.getRuntime().maxMemory() / 2){
+			throw new IllegalArgumentException(this.t + "-wise over " + n + " features needs " + (tuples >>> 23)
+					+ " MB of tuples, more than half the heap: restrict the features (setFeatures) or raise -Xmx");
+		}
+		this.done = new long[(int) ((tuples + 63) >>> 6)];
+		// Bits past the last tuple count as done, so the scans can skip whole words..
+		if ((tuples & 63) != 0){
+			this.done[this.done.length - 1] = -1L << (tuples & 63);
+		}
+		if (this.combinations == 0){
+			return this.products;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		try {
+			FeatureModelBackbone backbone = FeatureModelBackbone.forFile(this.file);
+			if (backbone.getNumberOfCore() + backbone.getNumberOfDead() > 0){
+				this.invalidTuples += this.runChunks(executor, null, backbone);
+			}
+
+			for (int[] partial : this.initial){
+				this.initiallyCovered += this.runChunks(executor, partial, null);
+			}
+			this.coveredTuples = this.initiallyCovered;
+
+			long cursor = 0;
+			while (true) {
+				cursor = this.nextUndone(cursor);
+				if (cursor >= this.combinations){
+					break;
+				}
+				int[] model = this.nextProduct(session, cursor);
+				if (model != null){
+					this.products.add(model);
+					this.coveredTuples += this.runChunks(executor, model, null);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return this.products;
+	}
+
+	/***
+	 * <p>Grows one product from the combination at the cursor, see the class comment.</p>
+	 * @return the product, or null if every remaining tuple turned out invalid
+	 */
+	private int[] nextProduct(Sat4jSession session, long cursor) throws Exception {
+		int perWord = 64 >>> this.t;
+		int[] pinned = new int[this.symbols.getNumberOfVariables() + 1];
+		int[] assumptions = new int[0];
+		int[] model = null;
+		int[] hint = new int[pinned.length - 1];
+		for (int i = 0; i < hint.length; i++){
+			hint[i] = this.random.nextBoolean() ? i + 1 : -(i + 1);
+		}
+		int failures = 0;
+
+		int[] c = this.unrank(cursor);
+		long rank = cursor;
+		while (rank < this.combinations && failures < this.maxFailures) {
+			if (rank % perWord == 0 && this.done[(int) (rank / perWord)] == -1L){
+				rank = this.nextUndone(rank);
+				if (rank >= this.combinations){
+					break;
+				}
+				c = this.unrank(rank);
+			}
+
+			int undone = this.undone(rank);
+			// A tuple the current model already has costs nothing; it is not pinned, which keeps the product free
+			// to take more tuples (the solver starts from the current model, so it mostly stays)..
+			if (undone != 0 && (model == null || (undone & (1 << this.assignment(model, c))) == 0)){
+				for (int a = 0; a < (1 << this.t); a++){
+					if ((undone & (1 << a)) == 0 || !this.isConsistent(pinned, c, a)){
+						continue;
+					}
+					int[] found = session.solveNear((model == null) ? hint : model, this.pin(pinned.clone(), assumptions, c, a));
+					this.solverCalls++;
+					if (found != null){
+						model = found;
+						assumptions = this.pin(pinned, assumptions, c, a);
+						break;
+					}
+					// Not with the pinned literals; if not on its own either, it is invalid and never tried again..
+					boolean invalid = assumptions.length == 0;
+					if (!invalid){
+						invalid = session.solve(this.pin(new int[pinned.length], new int[0], c, a)) == null;
+						this.solverCalls++;
+					}
+					if (invalid){
+						this.setDone(rank, a);
+						this.invalidTuples++;
+					} else {
+						failures++;
+					}
+				}
+			}
+			rank++;
+			this.next(c);
+		}
+		return model;
+	}
+
+	/***
+	 * <p>Marks, over chunks of combinations on the pool, the tuples of a new product (model) or the tuples with an
+	 * impossible literal (backbone).</p>
+	 * @return number of tuples newly marked
+	 */
+	private long runChunks(ExecutorService executor, final int[] model, final FeatureModelBackbone backbone) throws Exception {
+		long perWord = 64 >>> this.t;
+		long chunk = Math.max(perWord, this.combinations / (this.threads * 4));
+		chunk = (chunk + perWord - 1) / perWord * perWord; // chunks never share a word..
+
+		List<Future<Long>> futures = new ArrayList<Future<Long>>();
+		for (long first = 0; first < this.combinations; first += chunk){
+			final long from = first;
+			final long to = Math.min(this.combinations, first + chunk);
+			futures.add(executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					return (model != null) ? TwiseCoveringArrayGenerator.this.markCovered(model, from, to)
+							: TwiseCoveringArrayGenerator.this.markImpossible(backbone, from, to);
+				}
+			}));
+		}
+		long marked = 0;
+		for (Future<Long> future : futures){
+			try {
+				marked += future.get();
+			} catch (ExecutionException e){
+				if (e.getCause() instanceof Exception){
+					throw (Exception) e.getCause();
+				}
+				throw e;
+			}
+		}
+		return marked;
+	}
+
+	private long markCovered(int[] model, long from, long to) {
+		long marked = 0;
+		int[] c = this.unrank(from);
+		for (long rank = from; rank < to; rank++){
+			int a = this.assignment(model, c);
+			if (a >= 0 && this.setDone(rank, a)){
+				marked++;
+			}
+			this.next(c);
+		}
+		return marked;
+	}
+
+	private long markImpossible(FeatureModelBackbone backbone, long from, long to) {
+		long marked = 0;
+		int[] c = this.unrank(from);
+		for (long rank = from; rank < to; rank++){
+			for (int a = 0; a < (1 << this.t); a++){
+				for (int i = 0; i < this.t; i++){
+					int feature = this.features[c[i]];
+					if (backbone.isImpossible(((a & (1 << i)) != 0) ? feature : -feature)){
+						if (this.setDone(rank, a)){
+							marked++;
+						}
+						break;
+					}
+				}
+			}
+			this.next(c);
+		}
+		return marked;
+	}
+
+	/***
+	 * <p>First combination at or after rank with a tuple that is neither covered nor invalid.</p>
+	 */
+	private long nextUndone(long rank) {
+		int perWord = 64 >>> this.t;
+		int word = (int) (rank / perWord);
+		if (word >= this.done.length){
+			return this.combinations;
+		}
+		if (this.done[word] != -1L){
+			// Within the word, step combination by combination..
+			for (long r = rank; r < (long) (word + 1) * perWord && r < this.combinations; r++){
+				if (this.undone(r) != 0){
+					return r;
+				}
+			}
+		}
+		for (word++; word < this.done.length; word++){
+			if (this.done[word] != -1L){
+				for (long r = (long) word * perWord; r < (long) (word + 1) * perWord && r < this.combinations; r++){
+					if (this.undone(r) != 0){
+						return r;
+					}
+				}
+			}
+		}
+		return this.combinations;
+	}
+
+	/***
+	 * <p>The 2^t bits of a combination that are still to be covered.</p>
+	 */
+	private int undone(long rank) {
+		long bit = rank << this.t;
+		int mask = (1 << (1 << this.t)) - 1;
+		return (int) (~this.done[(int) (bit >>> 6)] >>> (bit & 63)) & mask;
+	}
+
+	/***
+	 * <p>Sets one tuple bit; chunks never share a word, so only the growing (single) thread and the chunk owning the
+	 * word write it.</p>
+	 * @return true if the bit was not set yet
+	 */
+	private boolean setDone(long rank, int a) {
+		long bit = (rank << this.t) | a;
+		int word = (int) (bit >>> 6);
+		long mask = 1L << (bit & 63);
+		if ((this.done[word] & mask) != 0){
+			return false;
+		}
+		this.done[word] |= mask;
+		return true;
+	}
+
+	/***
+	 * <p>The assignment of the combination in a model: bit i set if its i-th feature is enabled, or -1 if a partial
+	 * model does not assign one of them.</p>
+	 */
+	private int assignment(int[] model, int[] c) {
+		int a = 0;
+		for (int i = 0; i < this.t; i++){
+			int value = model[this.features[c[i]] - 1];
+			if (value > 0){
+				a |= 1 << i;
+			} else if (value == 0){
+				return -1;
+			}
+		}
+		return a;
+	}
+
+	private boolean isConsistent(int[] pinned, int[] c, int a) {
+		for (int i = 0; i < this.t; i++){
+			int value = ((a & (1 << i)) != 0) ? 1 : -1;
+			int feature = this.features[c[i]];
+			if (pinned[feature] != 0 && pinned[feature] != value){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/***
+	 * <p>Pins the literals of a tuple and returns the assumptions extended with the ones that were not pinned yet.</p>
+	 */
+	private int[] pin(int[] pinned, int[] assumptions, int[] c, int a) {
+		int[] extended = Arrays.copyOf(assumptions, assumptions.length + this.t);
+		int size = assumptions.length;
+		for (int i = 0; i < this.t; i++){
+			int feature = this.features[c[i]];
+			if (pinned[feature] == 0){
+				boolean enabled = (a & (1 << i)) != 0;
+				pinned[feature] = enabled ? 1 : -1;
+				extended[size++] = enabled ? feature : -feature;
+			}
+		}
+		return Arrays.copyOf(extended, size);
+	}
+
+	/***
+	 * <p>The combination of a colex rank: c[0] &lt; .. &lt; c[t-1], rank = sum of C(c[i], i+1).</p>
+	 */
+	private int[] unrank(long rank) {
+		int[] c = new int[this.t];
+		int x = this.features.length - 1;
+		for (int i = this.t; i >= 1; i--){
+			while (this.binomials[x][i] > rank){
+				x--;
+			}
+			c[i - 1] = x;
+			rank -= this.binomials[x][i];
+			x--;
+		}
+		return c;
+	}
+
+	/***
+	 * <p>Next combination in colex order.</p>
+	 */
+	private void next(int[] c) {
+		int i = 0;
+		while (i < this.t - 1 && c[i] + 1 == c[i + 1]){
+			i++;
+		}
+		c[i]++;
+		for (int j = 0; j < i; j++){
+			c[j] = j;
+		}
+	}
+
+	/***
+	 * <p>Writes the products in the SPLCAT CSV layout, one row per named variable of the model.</p>
+	 * @param csv target file, replaced once it is complete
+	 * @throws IOException
+	 */
+	public void write(File csv) throws IOException {
+		File tmp = new File(csv.getPath() + ".tmp");
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+		try {
+			writer.write("Feature\\Product;");
+			for (int p = 0; p < this.products.size(); p++){
+				writer.write(p + ";");
+			}
+			writer.write("\n");
+			for (int id = 1; id <= this.symbols.getNumberOfVariables(); id++){
+				String name = this.symbols.getName(id);
+				if (name == null){
+					continue;
+				}
+				StringBuilder row = new StringBuilder(name.length() + 2 * this.products.size() + 2);
+				row.append(name).append(';');
+				for (int[] product : this.products){
+					row.append((product[id - 1] > 0) ? "X;" : "-;");
+				}
+				writer.write(row.append('\n').toString());
+			}
+		} finally {
+			writer.close();
+		}
+		if (!tmp.renameTo(csv)){
+			csv.delete();
+			if (!tmp.renameTo(csv)){
+				throw new IOException("Could not write covering array " + csv);
+			}
+		}
+	}
+
+	/***
+	 * <p>The products as configurations, disabled features prefixed by "!".</p>
+	 */
+	public List<List<String>> getConfigurations() {
+		List<List<String>> configurations = new ArrayList<List<String>>(this.products.size());
+		for (int[] product : this.products){
+			configurations.add(this.symbols.toConfiguration(product));
+		}
+		return configurations;
+	}
+
+	public List<int[]> getProducts() {
+		return products;
+	}
+
+	/***
+	 * <p>Number of t-tuples over the features: C(n, t) * 2^t.</p>
+	 */
+	public long getNumberOfTuples() {
+		return this.combinations << this.t;
+	}
+
+	public long getNumberOfInvalid() {
+		return invalidTuples;
+	}
+
+	/***
+	 * <p>Tuples covered, including the ones of the initial configurations.</p>
+	 */
+	public long getNumberOfCovered() {
+		return coveredTuples;
+	}
+
+	/***
+	 * <p>Tuples the initial configurations already covered.</p>
+	 */
+	public long getNumberOfInitiallyCovered() {
+		return initiallyCovered;
+	}
+
+	public long getSolverCalls() {
+		return solverCalls;
+	}
+
+	private static int[] toArray(Collection<Integer> ids) {
+		int[] array = new int[ids.size()];
+		int i = 0;
+		for (int id : ids){
+			array[i++] = id;
+		}
+		return array;
+	}
+
+}
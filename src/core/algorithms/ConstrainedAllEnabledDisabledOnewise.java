@@ -2,14 +2,12 @@ package core.algorithms;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import core.ConfigurationValidator;
 import core.CoveringArraysUtils;
 import core.SamplingAlgorithm;
-import de.fosd.typechef.featureexpr.FeatureExpr;
-import de.fosd.typechef.featureexpr.FeatureExprFactory;
-import de.fosd.typechef.featureexpr.FeatureModel;
-import de.fosd.typechef.lexer.FeatureExprLib;
 
 public class ConstrainedAllEnabledDisabledOnewise extends SamplingAlgorithm {
 
@@ -53,30 +51,30 @@ public class ConstrainedAllEnabledDisabledOnewise extends SamplingAlgorithm {
 		}
 		
 		
-		FeatureModel fm = null;
+		ConfigurationValidator validator = null;
 		if (file.getAbsolutePath().contains("/linux/")){
-			fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var("featureModel/linux.dimacs");
+			validator = ConfigurationValidator.forFile("featureModel/linux.dimacs");
 		} else if (file.getAbsolutePath().contains("/busybox/")) {
-			fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var("featureModel/busybox.dimacs");
+			validator = ConfigurationValidator.forFile("featureModel/busybox.dimacs");
 		}
 		
-		FeatureExpr expr = FeatureExprFactory.True();
-		for (String c : mostEnabled){
-			expr = expr.and(FeatureExprFactory.createDefinedExternal(c));
+		List<List<String>> candidates = new ArrayList<List<String>>();
+		candidates.add(mostEnabled);
+		candidates.add(mostDisabled);
+		BitSet valid = new BitSet();
+		if (validator != null){
+			valid = validator.validate(ConfigurationValidator.enabledOnly(candidates));
+		} else {
+			valid.set(0, candidates.size()); // No model to check against..
 		}
 		
-		if (expr.isSatisfiable(fm)){
+		if (valid.get(0)){
 			configs.add(mostEnabled);
 		} else {
 			System.err.println("File: " + file.getAbsolutePath());
 		}
 		
-		expr = FeatureExprFactory.True();
-		for (String c : mostDisabled){
-			expr = expr.and(FeatureExprFactory.createDefinedExternal(c));
-		}
-		
-		if (expr.isSatisfiable(fm)){
+		if (valid.get(1)){
 			configs.add(mostDisabled);
 		} else {
 			System.err.println("File: " + file.getAbsolutePath());
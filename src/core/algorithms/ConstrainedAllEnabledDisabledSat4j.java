@@ -2,15 +2,13 @@ package core.algorithms;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import util.InvalidConfigException;
+import core.ConfigurationValidator;
 import core.SamplingAlgorithm;
 import core.Sat4j;
-import de.fosd.typechef.featureexpr.FeatureExpr;
-import de.fosd.typechef.featureexpr.FeatureExprFactory;
-import de.fosd.typechef.featureexpr.FeatureModel;
-import de.fosd.typechef.lexer.FeatureExprLib;
 
 public class ConstrainedAllEnabledDisabledSat4j extends SamplingAlgorithm {
 
@@ -40,24 +38,18 @@ public class ConstrainedAllEnabledDisabledSat4j extends SamplingAlgorithm {
 		configurations.add(mostDisabledFinal);
 		configurations.add(mostEnabledFinal);
 		
-		FeatureModel fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var(dimacsFile.getAbsolutePath());
+		List<List<String>> candidates = new ArrayList<List<String>>();
+		candidates.add(mostEnabled);
+		candidates.add(mostDisabled);
+		BitSet valid = ConfigurationValidator.forFile(dimacsFile.getAbsolutePath()).validate(ConfigurationValidator.enabledOnly(candidates));
 		
-		
-		FeatureExpr expr = FeatureExprFactory.True();
-		for (String c : mostEnabled){
-			expr = expr.and(FeatureExprFactory.createDefinedExternal(c));
-		}
-		if (expr.isSatisfiable(fm)){
+		if (valid.get(0)){
 			System.out.println(srcFile.getAbsolutePath());
 		} else {
 			throw new InvalidConfigException();
 		}
 		
-		expr = FeatureExprFactory.True();
-		for (String c : mostDisabled){
-			expr = expr.and(FeatureExprFactory.createDefinedExternal(c));
-		}
-		if (expr.isSatisfiable(fm)){
+		if (valid.get(1)){
 			System.out.println(srcFile.getAbsolutePath());
 		} else {
 			throw new InvalidConfigException();
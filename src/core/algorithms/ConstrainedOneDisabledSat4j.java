@@ -1,7 +1,6 @@
 package core.algorithms;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 import core.SamplingAlgorithm;
@@ -12,20 +11,10 @@ public class ConstrainedOneDisabledSat4j extends SamplingAlgorithm{
 	public List<List<String>> getSamples(File srcFile, File dimacsFile) throws Exception{
 		List<String> directives = super.getDirectives(srcFile);
 		
-		List<List<String>> sampling = new Sat4j().getOneDisabled(dimacsFile.getAbsolutePath());
-		List<List<String>> configs = new ArrayList<List<String>>();
-		
-		for (List<String> config : sampling){
-			List<String> configAux = new ArrayList<String>();
-			for (String directive : config){
-				String directiveAux = directive.replace("!", "");
-				if (directives.contains(directiveAux)){
-					configAux.add(directive);
-				}
-			}
-			configs.add(configAux);
-		}
-		
+		Sat4j sat4j = new Sat4j();
+		sat4j.setUseBackbone(true); // dead / core features cannot be enabled / disabled, skip them
+		// Only the file's directives are solved, the results are cached per directive set..
+		List<List<String>> configs = sat4j.getOneDisabled(dimacsFile.getAbsolutePath(), directives);
 		return configs;
 	}
 	
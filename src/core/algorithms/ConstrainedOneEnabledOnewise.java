@@ -2,14 +2,12 @@ package core.algorithms;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import core.ConfigurationValidator;
 import core.CoveringArraysUtils;
 import core.SamplingAlgorithm;
-import de.fosd.typechef.featureexpr.FeatureExpr;
-import de.fosd.typechef.featureexpr.FeatureExprFactory;
-import de.fosd.typechef.featureexpr.FeatureModel;
-import de.fosd.typechef.lexer.FeatureExprLib;
 
 public class ConstrainedOneEnabledOnewise extends SamplingAlgorithm {
 
@@ -17,11 +15,11 @@ public class ConstrainedOneEnabledOnewise extends SamplingAlgorithm {
 		List<List<String>> configs = new ArrayList<List<String>>();
 		List<String> directives = super.getDirectives(file);
 		
-		FeatureModel fm = null;
+		ConfigurationValidator validator = null;
 		if (file.getAbsolutePath().contains("/busybox/")){
-			fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var("featureModel/busybox.dimacs");
+			validator = ConfigurationValidator.forFile("featureModel/busybox.dimacs");
 		} else {
-			fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var("featureModel/linux.dimacs");
+			validator = ConfigurationValidator.forFile("featureModel/linux.dimacs");
 		}
 		
 		
@@ -37,6 +35,7 @@ public class ConstrainedOneEnabledOnewise extends SamplingAlgorithm {
 			}
 		}
 		
+		List<List<String>> candidates = new ArrayList<List<String>>();
 		for (int i = 0; i < mostDisabled.size(); i++){
 			String toEnable = mostDisabled.get(i);
 			List<String> config = new ArrayList<String>();
@@ -48,13 +47,14 @@ public class ConstrainedOneEnabledOnewise extends SamplingAlgorithm {
 					config.add(directive);
 				}
 			}
-			
-			FeatureExpr expr = FeatureExprFactory.True();
-			for (String c : config){
-				expr = expr.and(FeatureExprFactory.createDefinedExternal(c));
-			}
-			
-			if (expr.isSatisfiable(fm)){
+			candidates.add(config);
+		}
+		
+		// The candidates are checked in one batch, each under assumptions on the model's solver, on their enabled macros as TypeChef did..
+		BitSet valid = validator.validate(ConfigurationValidator.enabledOnly(candidates));
+		for (int i = 0; i < candidates.size(); i++){
+			List<String> config = candidates.get(i);
+			if (valid.get(i)){
 				if (!configs.contains(config)){
 					configs.add(config);
 				}
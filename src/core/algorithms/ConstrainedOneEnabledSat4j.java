@@ -1,7 +1,6 @@
 package core.algorithms;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 import core.SamplingAlgorithm;
@@ -13,19 +12,10 @@ public class ConstrainedOneEnabledSat4j extends SamplingAlgorithm {
 		List<String> directives = super.getDirectives(srcFile);
 		System.out.println("DIR: " + directives.size());
 		
-		List<List<String>> sampling = new Sat4j().getOneEnabled(dimacsFile.getAbsolutePath());
-		List<List<String>> configs = new ArrayList<List<String>>();
-		
-		for (List<String> config : sampling){
-			List<String> configAux = new ArrayList<String>();
-			for (String directive : config){
-				String directiveAux = directive.replace("!", "");
-				if (directives.contains(directiveAux)){
-					configAux.add(directive);
-				}
-			}
-			configs.add(configAux);
-		}
+		Sat4j sat4j = new Sat4j();
+		sat4j.setUseBackbone(true); // dead / core features cannot be enabled / disabled, skip them
+		// Only the file's directives are solved, the results are cached per directive set..
+		List<List<String>> configs = sat4j.getOneEnabled(dimacsFile.getAbsolutePath(), directives);
 		System.out.println("CONFGS: " + configs.size());
 		return configs;
 	}
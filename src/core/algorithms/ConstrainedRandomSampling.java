@@ -2,14 +2,12 @@ package core.algorithms;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Random;
 
+import core.ConfigurationValidator;
 import core.SamplingAlgorithm;
-import de.fosd.typechef.featureexpr.FeatureExpr;
-import de.fosd.typechef.featureexpr.FeatureExprFactory;
-import de.fosd.typechef.featureexpr.FeatureModel;
-import de.fosd.typechef.lexer.FeatureExprLib;
 
 public class ConstrainedRandomSampling extends SamplingAlgorithm{
 
@@ -21,7 +19,17 @@ public class ConstrainedRandomSampling extends SamplingAlgorithm{
 		directives = this.getDirectives(file);
 //		System.out.println("Directives: " + directives);
 		if (directives.size() > 0){
-		
+			// One validator (and solver) per model, looked up once per file..
+			ConfigurationValidator validator = null;
+//			if (file.getAbsolutePath().contains("/linux/")){ // BUG1: we should consider the Windows platform
+			if (file.getAbsolutePath().contains("/linux/") || file.getAbsolutePath().contains("\\linux\\")){
+				validator = ConfigurationValidator.forFile("featureModel/linux.dimacs");
+//			} else if (file.getAbsolutePath().contains("/busybox/")){ // BUG1: we should consider the Windows platform
+			} else if (file.getAbsolutePath().contains("/busybox/") || file.getAbsolutePath().contains("\\busybox\\")){
+				validator = ConfigurationValidator.forFile("featureModel/busybox.dimacs");
+			}
+			
+			List<List<String>> candidates = new ArrayList<>();
 			for (int j = 0; j < ConstrainedRandomSampling.NUMBER_CONFIGS; j++){
 				// It set or not-set each configuration..
 				List<String> configuration = new ArrayList<>();
@@ -33,25 +41,23 @@ public class ConstrainedRandomSampling extends SamplingAlgorithm{
 					}
 				}
 				
-				FeatureModel fm = null;
-//				if (file.getAbsolutePath().contains("/linux/")){ // BUG1: we should consider the Windows platform
-				if (file.getAbsolutePath().contains("/linux/") || file.getAbsolutePath().contains("\\linux\\")){
-					fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var("featureModel/linux.dimacs");
-//				} else if (file.getAbsolutePath().contains("/busybox/")){ // BUG1: we should consider the Windows platform
-				} else if (file.getAbsolutePath().contains("/busybox/") || file.getAbsolutePath().contains("\\busybox\\")){
-					fm = FeatureExprLib.featureModelFactory().createFromDimacsFile_2Var("featureModel/busybox.dimacs");
-				}
-				
-				FeatureExpr expr = FeatureExprFactory.True(); //  configuration ɱʽ
-				for (String config : configuration){
-					expr = expr.and(FeatureExprFactory.createDefinedExternal(config));
-				}
-				if (expr.isSatisfiable(fm)){ // ɵıʽǷ CNF 
+				candidates.add(configuration);
+			}
+			
+			// ɵǷ CNF һ飬 TypeChef һֻõĺ..
+			BitSet valid = new BitSet();
+			if (validator != null){
+				valid = validator.validate(ConfigurationValidator.enabledOnly(candidates));
+			} else {
+				valid.set(0, candidates.size()); // No model to check against..
+			}
+			for (int j = 0; j < candidates.size(); j++){
+				List<String> configuration = candidates.get(j);
+				if (valid.get(j)){
 					if (!configurations.contains(configuration)){
 						configurations.add(configuration);
 					}
 				}
-				
 			}
 		
 		} else {
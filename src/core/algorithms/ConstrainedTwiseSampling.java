@@ -7,29 +7,81 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import core.CoveringArrayCache;
 import core.CoveringArraysUtils;
+import core.DirectiveScopedTwise;
 import core.SamplingAlgorithm;
+import core.TwiseCoveringArrayGenerator;
 
 public class ConstrainedTwiseSampling extends SamplingAlgorithm {
 
-	private static List<List<String>> configurations;
-	//private int t;
+	private static final CoveringArrayCache CACHE = new CoveringArrayCache();
+	private int t = 2;
+	private boolean local = false;
 	
 	public ConstrainedTwiseSampling() {
 		
 	}
 	
 	public ConstrainedTwiseSampling(int t) {
-		//this.t = t;
+		this.t = t;
+	}
+	
+	/***
+	 * @param t strength
+	 * @param local cover the t-wise interactions of each file's own directives ({@link DirectiveScopedTwise})
+	 * instead of projecting the covering array of the whole model
+	 */
+	public ConstrainedTwiseSampling(int t, boolean local) {
+		this.t = t;
+		this.local = local;
+	}
+	
+	public int getT() {
+		return t;
+	}
+	
+	public boolean isLocal() {
+		return local;
+	}
+	
+	/***
+	 * <p>The t-wise covering array of a project, "featureModel/&lt;project&gt;.dimacs.ca&lt;t&gt;.csv". Arrays SPLCAT did
+	 * not provide are generated from the project's DIMACS model by {@link TwiseCoveringArrayGenerator}, into its
+	 * cache directory ({@link TwiseCoveringArrayGenerator#forModel}).</p>
+	 */
+	public File getCoveringArrayFile(String project) throws Exception {
+		File coveringArrayFile = new File("featureModel/" + project + ".dimacs.ca" + t + ".csv");
+		File dimacs = new File("featureModel/" + project + ".dimacs");
+		if (coveringArrayFile.exists() || !dimacs.exists()){
+			return coveringArrayFile;
+		}
+		return TwiseCoveringArrayGenerator.forModel(dimacs, t);
 	}
 	
 	
-	/*public List<List<String>> getSamples(File srcFile, String project) throws Exception{
+	/***
+	 * <p>Samples of a source file of a project: local t-wise over its directives, or the project's covering array
+	 * ({@link #getCoveringArrayFile}) projected onto them.</p>
+	 */
+	public List<List<String>> getSamples(File srcFile, String project) throws Exception{
+		if (local){
+			List<String> directives = super.getDirectives(srcFile);
+			return DirectiveScopedTwise.forFile("featureModel/" + project + ".dimacs").getSamples(directives, t);
+		}
+		return this.getSamples(srcFile, this.getCoveringArrayFile(project));
+	}
+	
+	/***
+	 * <p>Completes samples of a source file (e.g. two samplings put together) to t-wise coverage of its directives:
+	 * returns them followed by the fewest valid samples {@link DirectiveScopedTwise#complete} needs to add.</p>
+	 */
+	public List<List<String>> complete(File srcFile, String project, List<List<String>> samples) throws Exception{
 		List<String> directives = super.getDirectives(srcFile);
-		String coveringArrayFile = "featureModel/" + project + ".dimacs.ca" + t + ".csv";
-		List<List<String>> sampling = new CoveringArraysUtils().getValidProducts(new File(coveringArrayFile), directives);
-		return sampling;
-	}*/
+		List<List<String>> completed = new ArrayList<List<String>>(samples);
+		completed.addAll(DirectiveScopedTwise.forFile("featureModel/" + project + ".dimacs").complete(directives, samples, t));
+		return completed;
+	}
 	
 	public List<List<String>> getSamples(File srcFile, File coveringArrayFile) throws Exception{
 		List<String> directives = super.getDirectives(srcFile);
@@ -37,12 +89,19 @@ public class ConstrainedTwiseSampling extends SamplingAlgorithm {
 		return sampling;
 	}
 	
+	/***
+	 * <p>All products of a t-wise covering array, cached per array file, modification time and t (see {@link #getCache()}).</p>
+	 */
 	@Override
 	public List<List<String>> getSamples(File coveringArrayFile) throws Exception{
-		if (ConstrainedTwiseSampling.configurations == null){
-			ConstrainedTwiseSampling.configurations = new CoveringArraysUtils().getValidProducts(coveringArrayFile);
-		}
-		return ConstrainedTwiseSampling.configurations;
+		return ConstrainedTwiseSampling.CACHE.get(coveringArrayFile, t);
+	}
+	
+	/***
+	 * <p>The covering arrays shared by every instance, with their hit / miss / eviction counters.</p>
+	 */
+	public static CoveringArrayCache getCache() {
+		return ConstrainedTwiseSampling.CACHE;
 	}
 	
 	@Override
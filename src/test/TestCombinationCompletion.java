@@ -0,0 +1,87 @@
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import core.TwiseCoverageAnalyser;
+import core.algorithms.ConstrainedAllEnabledDisabledOnewise;
+import core.algorithms.ConstrainedOneDisabledOnewise;
+import core.algorithms.ConstrainedOneEnabledOnewise;
+import core.algorithms.ConstrainedTwiseSampling;
+
+/***
+ * <p>What the two-algorithm combinations of the checkers really cost: for every busybox bug file, the pairwise
+ * coverage of each combination, the samples needed to complete it to pairwise, and local pairwise on its own.</p>
+ */
+public class TestCombinationCompletion {
+
+	public static void main(String[] args) throws Exception {
+		File ca1 = new File("featureModel/busybox.dimacs.ca1.csv");
+		ConstrainedOneEnabledOnewise oneEnabled = new ConstrainedOneEnabledOnewise();
+		ConstrainedOneDisabledOnewise oneDisabled = new ConstrainedOneDisabledOnewise();
+		ConstrainedAllEnabledDisabledOnewise allEnabledDisabled = new ConstrainedAllEnabledDisabledOnewise();
+		ConstrainedTwiseSampling pairwise = new ConstrainedTwiseSampling(2, true);
+		TwiseCoverageAnalyser analyser = new TwiseCoverageAnalyser("featureModel/busybox.dimacs");
+
+		String[] names = {"One-enabled + one-disabled", "One-enabled + all-enabled-disabled", "One-disabled + all-enabled-disabled"};
+		int[] combined = new int[names.length];
+		int[] added = new int[names.length];
+		int plain = 0;
+		long start = System.currentTimeMillis();
+		try {
+			LinkedHashSet<String> files = new LinkedHashSet<String>();
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File("bugs/busybox/busybox-bugs"))));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				String[] parts = line.split(";");
+				files.add("bugs/" + parts[0] + "/" + parts[1] + "/" + parts[2]);
+			}
+			br.close();
+
+			for (String path : files){
+				File file = new File(path);
+				List<String> directives = oneEnabled.getDirectives(file);
+				List<List<String>> enabled = oneEnabled.getSamples(file, ca1);
+				List<List<String>> disabled = oneDisabled.getSamples(file, ca1);
+				List<List<String>> enabledDisabled = allEnabledDisabled.getSamples(file, ca1);
+				List<List<List<String>>> combinations = new ArrayList<List<List<String>>>();
+				combinations.add(TestCombinationCompletion.union(enabled, disabled));
+				combinations.add(TestCombinationCompletion.union(enabled, enabledDisabled));
+				combinations.add(TestCombinationCompletion.union(disabled, enabledDisabled));
+
+				int local = pairwise.getSamples(file, "busybox").size();
+				plain += local;
+				System.out.println(file + " (" + directives.size() + " directives), local pairwise: " + local + " samples");
+				for (int i = 0; i < names.length; i++){
+					List<List<String>> samples = combinations.get(i);
+					TwiseCoverageAnalyser.Coverage coverage = analyser.analyse(samples, directives, 2).get(1);
+					int completion = pairwise.complete(file, "busybox", samples).size() - samples.size();
+					combined[i] += samples.size();
+					added[i] += completion;
+					System.out.println(String.format("  %s: %d samples, %.1f%% pairwise, +%d to complete", names[i],
+							samples.size(), coverage.getCoverage() * 100, completion));
+				}
+			}
+		} finally {
+			analyser.shutdown();
+		}
+		System.out.println();
+		System.out.println("Local pairwise: " + plain + " samples");
+		for (int i = 0; i < names.length; i++){
+			System.out.println(names[i] + ": " + combined[i] + " samples, " + (combined[i] + added[i]) + " completed to pairwise");
+		}
+		System.out.println("Time: " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private static List<List<String>> union(List<List<String>> first, List<List<String>> second) {
+		List<List<String>> union = new ArrayList<List<String>>(first);
+		union.addAll(second);
+		return union;
+	}
+
+}
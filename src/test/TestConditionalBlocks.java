@@ -0,0 +1,79 @@
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+
+import core.ConditionalBlockTree;
+import core.PresenceCondition;
+import core.algorithms.ConstrainedTwiseSampling;
+
+/***
+ * <p>Runs {@link ConditionalBlockTree} on the busybox bug files: for every bug, whether its recorded presence
+ * condition implies the presence condition of the block holding the bug line, and the block coverage of global and
+ * local pairwise sampling.</p>
+ */
+public class TestConditionalBlocks {
+
+	public static void main(String[] args) throws Exception {
+		ConstrainedTwiseSampling global = new ConstrainedTwiseSampling(2);
+		ConstrainedTwiseSampling local = new ConstrainedTwiseSampling(2, true);
+		int bugs = 0;
+		int implied = 0;
+		long millis = 0;
+
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File("bugs/busybox/busybox-bugs"))));
+		String line = null;
+		while ((line = br.readLine()) != null) {
+			String[] parts = line.split(";");
+			File file = new File("bugs/" + parts[0] + "/" + parts[1] + "/" + parts[2]);
+			long start = System.currentTimeMillis();
+			ConditionalBlockTree tree = ConditionalBlockTree.forFile(file);
+			millis += System.currentTimeMillis() - start;
+			System.out.println(file + " (" + tree.getBlocks().size() + " blocks)");
+
+			if (parts.length > 4 && parts[4].trim().matches("[0-9]+")){
+				int bugLine = Integer.parseInt(parts[4].trim());
+				String blockCondition = tree.toString(tree.getPresenceCondition(bugLine));
+				boolean implies = TestConditionalBlocks.implies(parts[3], blockCondition);
+				bugs++;
+				if (implies){
+					implied++;
+				}
+				System.out.println("  line " + bugLine + ", block: " + blockCondition);
+				System.out.println("  bug: " + parts[3] + (implies ? "" : "  (does not imply the block)"));
+			}
+			System.out.println("  blocks covered: global pairwise " + tree.getNumberOfCovered(global.getSamples(file, "busybox"))
+					+ ", local pairwise " + tree.getNumberOfCovered(local.getSamples(file, "busybox")));
+		}
+		br.close();
+		System.out.println("Bugs with a line whose presence condition implies their block: " + implied + "/" + bugs);
+		System.out.println("Trees: " + millis + " ms, cache hits " + ConditionalBlockTree.getCacheHits() + ", misses "
+				+ ConditionalBlockTree.getCacheMisses());
+	}
+
+	/***
+	 * <p>Whether a implies b, over every assignment of their variables (a few per bug).</p>
+	 */
+	private static boolean implies(String a, String b) {
+		ConditionalBlockTree tree = ConditionalBlockTree.parse("#if " + a + "\n#endif\n#if " + b + "\n#endif\n");
+		int[] first = tree.getBlocks().get(0).getPresenceCondition();
+		int[] second = tree.getBlocks().get(1).getPresenceCondition();
+		int n = tree.getNumberOfMacros();
+		if (n > 24){
+			throw new IllegalArgumentException("Too many variables: " + n);
+		}
+		for (long assignment = 0; assignment < (1L << n); assignment++){
+			boolean[] values = new boolean[n + 1];
+			for (int id = 1; id <= n; id++){
+				values[id] = (assignment & (1L << (id - 1))) != 0;
+			}
+			if (PresenceCondition.evaluate(first, values) && !PresenceCondition.evaluate(second, values)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,54 @@
+package test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.CoveringArraysUtils;
+import core.algorithms.ConstrainedOneEnabledOnewise;
+
+/***
+ * <p>Benchmarks the per-file projection of a covering array: {@link CoveringArraysUtils#getValidProducts(File, List)}
+ * with the directives of every bug source file of a project.</p>
+ */
+public class TestCoveringArrayProjection {
+
+	public static void main(String[] args) throws Exception {
+		TestCoveringArrayProjection t = new TestCoveringArrayProjection();
+		t.benchmark(new File("bugs/busybox"), new File("featureModel/busybox.dimacs.ca2.csv"));
+		t.benchmark(new File("bugs/linux"), new File("featureModel/linux.dimacs.ca1.csv"));
+	}
+
+	public void benchmark(File project, File coveringArray) throws Exception {
+		List<List<String>> directiveSets = new ArrayList<List<String>>();
+		this.collectDirectives(project, directiveSets);
+
+		CoveringArraysUtils utils = new CoveringArraysUtils();
+		long start = System.nanoTime();
+		utils.getValidProducts(coveringArray, directiveSets.get(0)); // converts and maps the array once..
+		long load = System.nanoTime() - start;
+
+		int rounds = 100;
+		int products = 0;
+		start = System.nanoTime();
+		for (int round = 0; round < rounds; round++){
+			for (List<String> directives : directiveSets){
+				products += utils.getValidProducts(coveringArray, directives).size();
+			}
+		}
+		double perFile = (System.nanoTime() - start) / 1000000.0 / (rounds * directiveSets.size());
+		System.out.println(coveringArray.getName() + ": " + directiveSets.size() + " files, load " + (load / 1000000)
+				+ " ms, projection " + String.format("%.4f", perFile) + " ms per file (" + (products / rounds) + " products)");
+	}
+
+	private void collectDirectives(File file, List<List<String>> directiveSets) throws Exception {
+		if (file.isDirectory()){
+			for (File child : file.listFiles()){
+				this.collectDirectives(child, directiveSets);
+			}
+		} else if (file.getName().endsWith(".c")){
+			directiveSets.add(new ConstrainedOneEnabledOnewise().getDirectives(file));
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+
+import core.DirectiveIndex;
+import core.algorithms.ConstrainedOneEnabledOnewise;
+
+/***
+ * <p>Checks which macros a #define drops from the macros of a source: an object-like #define with a value drops its
+ * name however the line is spaced or commented (as "# define PIPE_BUF 4096" followed by a comment in busybox
+ * shell/hush.c, which the line-based parser kept), while an empty or function-like #define keeps it.</p>
+ */
+public class TestDirectiveDefines {
+
+	public static void main(String[] args) throws Exception {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "directive-defines");
+		dir.mkdirs();
+		// A store of its own, not to leave the snippets in the default index..
+		System.setProperty(DirectiveIndex.STORE_PROPERTY, new File(dir, "directives.idx").getPath());
+		ConstrainedOneEnabledOnewise algorithm = new ConstrainedOneEnabledOnewise();
+
+		TestDirectiveDefines.check(algorithm, dir, "hush",
+				"#ifndef PIPE_BUF\n# define PIPE_BUF 4096 /* amount of buffering in a pipe */\n#endif\n", "PIPE_BUF", false);
+		TestDirectiveDefines.check(algorithm, dir, "value", "#ifdef BAZ\n#define BAZ 1\n#endif\n", "BAZ", false);
+		TestDirectiveDefines.check(algorithm, dir, "tabs", "#ifdef QUX\n#define\tQUX\t1\n#endif\n", "QUX", false);
+		TestDirectiveDefines.check(algorithm, dir, "empty", "#if defined(FOO)\n#define FOO\n#endif\n", "FOO", true);
+		TestDirectiveDefines.check(algorithm, dir, "function", "#ifdef BAR\n#define BAR(x) x\n#endif\n", "BAR", true);
+
+		File hush = new File("bugs/busybox/shell/hush.c");
+		if (hush.exists()){
+			LinkedHashSet<String> macros = algorithm.getDirectiveSet(hush);
+			System.out.println(hush + ": " + macros.size() + " macros, PIPE_BUF " + macros.contains("PIPE_BUF") + ", d "
+					+ macros.contains("d"));
+			if (macros.contains("PIPE_BUF") || macros.contains("d")){
+				throw new IllegalStateException(hush + " still lists PIPE_BUF or d");
+			}
+		}
+	}
+
+	private static void check(ConstrainedOneEnabledOnewise algorithm, File dir, String name, String source,
+			String macro, boolean kept) throws Exception {
+		File file = new File(dir, name + ".c");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+		LinkedHashSet<String> macros = algorithm.getDirectiveSet(file);
+		System.out.println(name + ": " + macros + (macros.contains(macro) == kept ? "" : "  (expected " + macro
+				+ (kept ? " kept)" : " dropped)")));
+		if (macros.contains(macro) != kept){
+			throw new IllegalStateException(name + ": " + macro + (kept ? " dropped" : " kept"));
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import core.IncludeClosure;
+import core.algorithms.ConstrainedOneEnabledOnewise;
+
+/***
+ * <p>Compares the macros of the Linux bug files on their own and with the headers they include from
+ * bugs/linux/include: how many macros and headers each gains, how many bug presence-condition macros are found in
+ * either set, and the time of a first and a memoized pass.</p>
+ */
+public class TestIncludeClosure {
+
+	public static void main(String[] args) throws Exception {
+		List<File> includePath = IncludeClosure.parsePath("bugs/linux/include");
+		ConstrainedOneEnabledOnewise own = new ConstrainedOneEnabledOnewise();
+		ConstrainedOneEnabledOnewise included = new ConstrainedOneEnabledOnewise();
+		included.setIncludePath(includePath);
+
+		int bugMacros = 0;
+		int foundOwn = 0;
+		int foundIncluded = 0;
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File("bugs/linux/linux-bugs"))));
+		String line = null;
+		while ((line = br.readLine()) != null) {
+			String[] parts = line.split(";");
+			File file = new File("bugs/" + parts[0] + "/" + parts[1] + "/" + parts[2]);
+			LinkedHashSet<String> ownSet = own.getDirectiveSet(file);
+			LinkedHashSet<String> includedSet = included.getDirectiveSet(file);
+			int headers = IncludeClosure.forPath(includePath).getHeaders(file).size();
+			System.out.println(file + ": " + ownSet.size() + " macros, " + includedSet.size() + " with " + headers + " headers");
+
+			for (String macro : parts[3].split("[^A-Za-z0-9_]+")){
+				if (macro.isEmpty() || Character.isDigit(macro.charAt(0)) || macro.equals("defined")){
+					continue;
+				}
+				bugMacros++;
+				if (ownSet.contains(macro)){
+					foundOwn++;
+				}
+				if (includedSet.contains(macro)){
+					foundIncluded++;
+				}
+			}
+		}
+		br.close();
+		System.out.println("Bug macros found: " + foundOwn + "/" + bugMacros + " on their own, " + foundIncluded + "/"
+				+ bugMacros + " with includes");
+
+		for (int pass = 1; pass <= 2; pass++){
+			long start = System.nanoTime();
+			int macros = 0;
+			for (File source : TestIncludeClosure.sources(new File("bugs/linux"), new ArrayList<File>())){
+				macros += included.getDirectiveSet(source).size();
+			}
+			System.out.println("Pass " + pass + ": " + macros + " macros in " + (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		System.out.println(IncludeClosure.forPath(includePath));
+	}
+
+	private static List<File> sources(File directory, List<File> sources) {
+		for (File child : directory.listFiles()){
+			if (child.isDirectory()){
+				TestIncludeClosure.sources(child, sources);
+			} else if (child.getName().endsWith(".c") || child.getName().endsWith(".h")){
+				sources.add(child);
+			}
+		}
+		return sources;
+	}
+
+}
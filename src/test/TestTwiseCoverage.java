@@ -0,0 +1,48 @@
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import core.TwiseCoverageAnalyser;
+import core.algorithms.ConstrainedOneEnabledOnewise;
+import core.algorithms.ConstrainedTwiseSampling;
+
+/***
+ * <p>Runs {@link TwiseCoverageAnalyser} on every busybox bug file: 1..3-wise coverage of the file's directives by
+ * the projected global pairwise array and by local pairwise sampling.</p>
+ */
+public class TestTwiseCoverage {
+
+	public static void main(String[] args) throws Exception {
+		TwiseCoverageAnalyser analyser = new TwiseCoverageAnalyser("featureModel/busybox.dimacs");
+		ConstrainedTwiseSampling global = new ConstrainedTwiseSampling(2);
+		ConstrainedTwiseSampling local = new ConstrainedTwiseSampling(2, true);
+		long millis = 0;
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File("bugs/busybox/busybox-bugs"))));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				String[] parts = line.split(";");
+				File file = new File("bugs/" + parts[0] + "/" + parts[1] + "/" + parts[2]);
+				List<String> directives = new ConstrainedOneEnabledOnewise().getDirectives(file);
+
+				long start = System.currentTimeMillis();
+				List<TwiseCoverageAnalyser.Coverage> globalCoverage = analyser.analyse(global.getSamples(file, "busybox"), directives, 3);
+				List<TwiseCoverageAnalyser.Coverage> localCoverage = analyser.analyse(local.getSamples(file, "busybox"), directives, 3);
+				millis += System.currentTimeMillis() - start;
+
+				System.out.println(file + " (" + globalCoverage.get(0).getNumberOfVariables() + " variables)");
+				System.out.println("  global pairwise, " + globalCoverage.get(0).getNumberOfSamples() + " samples: " + globalCoverage);
+				System.out.println("  local pairwise, " + localCoverage.get(0).getNumberOfSamples() + " samples: " + localCoverage);
+			}
+			br.close();
+		} finally {
+			analyser.shutdown();
+		}
+		System.out.println("Analysis: " + millis + " ms");
+	}
+
+}
@@ -1,46 +1,37 @@
 package util;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
+import core.DimacsSymbolTable;
+import core.DirectiveIndex;
+
+/***
+ * <p>Lists the macros tested in the busybox sources that are not features of the busybox model, with the files
+ * using them, from the {@link DirectiveIndex} of the whole tree (indexed in parallel on first use).</p>
+ */
 public class AllFeaturesInFM {
 
 	public static void main(String[] args) throws Exception {
-		File sourceFile = new File("bugs/busybox/archival/tar.c");
-		List<String> directives = new AllFeaturesInFM().getDirectives(sourceFile);
+		File sourceTree = new File(args.length > 0 ? args[0] : "bugs/busybox");
+		DirectiveIndex index = DirectiveIndex.getDefault();
+		index.index(sourceTree, Runtime.getRuntime().availableProcessors());
 		
-		List<String> directivesInFM = new AllFeaturesInFM().getDirectivesInFM();
+		DimacsSymbolTable directivesInFM = DimacsSymbolTable.forFile("featureModel/busybox.dimacs");
 		
-		for (String directive : directives){
-			if (!directivesInFM.contains(directive)){
-				System.out.println("Problem with feature: " + directive);
+		for (String directive : index.getMacros()){
+			Set<String> files = index.getFiles(directive, sourceTree);
+			if (!files.isEmpty() && !directivesInFM.contains(directive)){
+				System.out.println("Problem with feature: " + directive + " " + files);
 			}
 		}
 		
 	}
 	
 	public List<String> getDirectivesInFM() throws Exception {
-		List<String> directives = new ArrayList<String>();
-		FileInputStream fis = new FileInputStream(new File("featureModel/busybox.dimacs"));
-		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-	 
-		String line = null;
-		while ((line = br.readLine()) != null) {
-			if (line.startsWith("p cnf")){
-				break;
-			}
-			System.out.println(line);
-			String[] parts = line.split(" ");
-			directives.add(parts[2].trim());
-		}
-	 
-		br.close();
-		return directives;
+		return new ArrayList<String>(DimacsSymbolTable.forFile("featureModel/busybox.dimacs").getNames());
 	}
 	
 	public boolean isValidJavaIdentifier(String s) {
@@ -69,57 +60,6 @@ public class AllFeaturesInFM {
 	
 	// It sets the number of configurations..
 	public List<String> getDirectives(File file) throws Exception{
-		List<String> directives = new ArrayList<>();
-		
-		FileInputStream fstream = new FileInputStream(file);
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-		String strLine;
-
-		while ((strLine = br.readLine()) != null)   {
-			
-			strLine = strLine.trim();
-			
-			if (strLine.startsWith("#")){
-				strLine = strLine.replaceAll("#(\\s)+", "#");
-				strLine = strLine.replaceAll("#(\\t)+", "#");
-			}
-			
-			if (strLine.trim().startsWith("#if") || strLine.trim().startsWith("#elif")){
-				
-				strLine = strLine.replaceAll("(?:/\\*(?:[^*]|(?:\\*+[^*/]))*\\*+/)|(?://.*)","");
-				
-				String directive = strLine.replace("#ifdef", "").replace("#ifndef", "").replace("#if", "");
-				directive = directive.replace("defined", "").replace("(", "").replace(")", "");
-				directive = directive.replace("||", "").replace("&&", "").replace("!", "").replace("<", "").replace(">", "").replace("=", "");
-				
-				String[] directivesStr = directive.split(" ");
-				
-				for (int i = 0; i < directivesStr.length; i++){
-					if (!directives.contains(directivesStr[i].trim()) && !directivesStr[i].trim().equals("") && this.isValidJavaIdentifier(directivesStr[i].trim())){
-						directives.add(directivesStr[i].trim());
-					}
-				}
-			}
-			
-			if (strLine.startsWith("#")){
-				strLine = strLine.replaceAll("#(\\s)+", "#");
-				strLine = strLine.replaceAll("#(\\t)+", "#");
-				if (strLine.startsWith("#define")){
-					String[] parts = strLine.split(" ");
-					if (parts.length == 3){
-						parts[1] = parts[1].trim();
-						directives.remove(parts[1]);
-					}
-				}
-			}
-			
-		}
-		
-		String fileName = file.getName().toUpperCase() + "_H";
-		directives.remove(fileName);
-		
-		in.close();
-		return directives;
+		return new ArrayList<String>(DirectiveIndex.getDefault().getDirectives(file));
 	}
 }
@@ -3,14 +3,19 @@ package util;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
-import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Set;
 
+import core.DirectiveIndex;
+
+/***
+ * <p>Checks that every macro of the busybox bug presence conditions is tested by a conditional of its file, querying
+ * the {@link DirectiveIndex} (each file is read once, or not at all if it is already indexed).</p>
+ */
 public class CheckPresenceConditionInFiles {
 
 	public static void main(String[] args) throws Exception {
-		CheckPresenceConditionInFiles checkPresenceConditionInFiles = new CheckPresenceConditionInFiles();
+		DirectiveIndex index = DirectiveIndex.getDefault();
 		
 		FileInputStream fis = new FileInputStream(new File("bugs/busybox/busybox-bugs"));
 		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
@@ -21,6 +26,7 @@ public class CheckPresenceConditionInFiles {
 			String presenceCondition = parts[3];
 			
 			presenceCondition = presenceCondition.replaceAll("\\s", "");
+			Set<String> directives = index.getDirectives(new File("bugs/" + parts[0] + "/" + parts[1] + "/" + parts[2]));
 			String[] options = presenceCondition.split("\\)\\|\\|\\(");
 			
 			for (String option : options){
@@ -28,9 +34,7 @@ public class CheckPresenceConditionInFiles {
 				for (String macro : macros){
 					macro = macro.replace("(", "").replace(")", "").replace("!", "");
 					
-					String file = checkPresenceConditionInFiles.readFile("bugs/" + parts[0] + "/" + parts[1] + "/" + parts[2]);
-					
-					if (!file.contains(macro)){
+					if (!directives.contains(macro)){
 						System.out.println("Missing macro: " + macro + " in file " + parts[0] + "/" + parts[1] + "/" + parts[2]);
 					}
 				}
@@ -41,19 +45,4 @@ public class CheckPresenceConditionInFiles {
 		br.close();
 	}
 	
-	public String readFile( String file ) throws IOException {
-	    BufferedReader reader = new BufferedReader( new FileReader (file));
-	    String         line = null;
-	    StringBuilder  stringBuilder = new StringBuilder();
-	    String         ls = System.getProperty("line.separator");
-
-	    while( ( line = reader.readLine() ) != null ) {
-	        stringBuilder.append( line );
-	        stringBuilder.append( ls );
-	    }
-	    
-	    reader.close();
-	    return stringBuilder.toString();
-	}
-	
 }